@@ -0,0 +1,89 @@
+package com.solocrew;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.socket.BinaryMessage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation cost of forwarding one client audio frame to the upstream session.
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} between the two paths.
+ *
+ * <pre>mvn -Pbenchmarks compile exec:exec -Djmh.args="AudioForwardingBenchmark -prof gc"</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AudioForwardingBenchmark {
+
+    /** 20 ms and 100 ms of 16 kHz 16-bit mono PCM. */
+    @Param({"640", "3200"})
+    public int frameBytes;
+
+    private NoopWebSocketSession upstream;
+    private AssemblyAIStreamingServiceV2.StreamingSessionV2 streamingSession;
+    private AssemblyAIStreamingServiceV2.StreamingSessionV2 coalescingSession;
+    private ScheduledThreadPoolExecutor flushScheduler;
+    private BinaryMessage inbound;
+
+    @Setup
+    public void setUp() {
+        upstream = new NoopWebSocketSession("upstream");
+        // Drain inline on the calling thread so the send cost is part of the measurement
+        AudioSendQueue sendQueue = new AudioSendQueue(upstream, new AudioBufferPool(8192, 16), Runnable::run,
+                100, AudioSendQueue.OverflowPolicy.DROP_OLDEST, null, new AudioSendQueue.Stats());
+        streamingSession = new AssemblyAIStreamingServiceV2.StreamingSessionV2("bench", upstream, sendQueue, null);
+        AudioBufferPool coalescerPool = new AudioBufferPool(8192, 16);
+        AudioSendQueue coalescedQueue = new AudioSendQueue(upstream, coalescerPool, Runnable::run,
+                100, AudioSendQueue.OverflowPolicy.DROP_OLDEST, null, new AudioSendQueue.Stats());
+        flushScheduler = new ScheduledThreadPoolExecutor(1);
+        flushScheduler.setRemoveOnCancelPolicy(true);
+        // 100 ms messages, so 20 ms frames go out five to a message
+        coalescingSession = new AssemblyAIStreamingServiceV2.StreamingSessionV2("bench", upstream, coalescedQueue,
+                new AudioFrameCoalescer(coalescedQueue, coalescerPool, flushScheduler, 3200, 1000, new AudioFrameCoalescer.Stats()), null);
+        // The container hands the handler one reusable inbound buffer per connection
+        inbound = new BinaryMessage(ByteBuffer.allocate(frameBytes));
+    }
+
+    @TearDown
+    public void tearDown() {
+        flushScheduler.shutdownNow();
+    }
+
+    /** Previous handler behaviour: copy the payload into a byte[] and re-wrap it. */
+    @Benchmark
+    public long copyThenWrap() {
+        ByteBuffer audioData = inbound.getPayload();
+        audioData.rewind();
+        byte[] audioBytes = new byte[audioData.remaining()];
+        audioData.get(audioBytes);
+        streamingSession.sendAudioData(audioBytes);
+        return upstream.getPayloadBytesSent();
+    }
+
+    /** Current handler behaviour: hand the payload buffer to the session's send queue. */
+    @Benchmark
+    public long forwardBuffer() {
+        ByteBuffer audioData = inbound.getPayload();
+        audioData.rewind();
+        streamingSession.sendAudioData(audioData);
+        return upstream.getPayloadBytesSent();
+    }
+
+    /**
+     * Forwarding through a 100 ms coalescer: the per-frame cost including the flush timer, with
+     * the upstream message count cut by the batching factor.
+     */
+    @Benchmark
+    public long forwardCoalesced() {
+        ByteBuffer audioData = inbound.getPayload();
+        audioData.rewind();
+        coalescingSession.sendAudioData(audioData);
+        return upstream.getMessagesSent();
+    }
+}
@@ -0,0 +1,85 @@
+package com.solocrew;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.socket.BinaryMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One client audio frame through the whole ingest path: the handler's
+ * {@code handleBinaryMessage}, metrics, preprocessing, the coalescer and send queue, up to the
+ * (stub) upstream socket.
+ *
+ * <pre>mvn -Pbenchmarks compile exec:exec -Djmh.args="AudioIngestBenchmark -prof gc"</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AudioIngestBenchmark {
+
+    /** 20 ms and 100 ms of 16 kHz 16-bit mono PCM. */
+    @Param({"640", "3200"})
+    public int frameBytes;
+
+    /** Whether the client session has an {@link AudioPreprocessor} (gate open) or passes frames through. */
+    @Param({"true", "false"})
+    public boolean preprocess;
+
+    private AudioStreamingWebSocketHandler handler;
+    private NoopWebSocketSession client;
+    private NoopWebSocketSession upstream;
+    private ScheduledThreadPoolExecutor flushScheduler;
+    private BinaryMessage frame;
+
+    @Setup
+    public void setUp() {
+        handler = new AudioStreamingWebSocketHandler();
+        BenchmarkSupport.inject(handler, "objectMapper", BenchmarkSupport.objectMapper());
+        BenchmarkSupport.inject(handler, "pipelineMetrics", BenchmarkSupport.pipelineMetrics());
+        client = new NoopWebSocketSession("client");
+        upstream = new NoopWebSocketSession("upstream");
+
+        // As wired by the service: 50 ms messages, drained inline so the send is measured too
+        AudioBufferPool pool = new AudioBufferPool(8192, 64);
+        AudioSendQueue sendQueue = new AudioSendQueue(upstream, pool, Runnable::run,
+                100, AudioSendQueue.OverflowPolicy.DROP_OLDEST, null, new AudioSendQueue.Stats());
+        flushScheduler = new ScheduledThreadPoolExecutor(1);
+        flushScheduler.setRemoveOnCancelPolicy(true);
+        AudioFrameCoalescer coalescer = new AudioFrameCoalescer(sendQueue, pool, flushScheduler, 1600, 100, new AudioFrameCoalescer.Stats());
+        Map<String, AssemblyAIStreamingServiceV2.StreamingSessionV2> sessions = BenchmarkSupport.read(handler, "assemblyAISessions");
+        sessions.put(client.getId(), new AssemblyAIStreamingServiceV2.StreamingSessionV2(client.getId(), upstream,
+                sendQueue, coalescer, null));
+        if (preprocess) {
+            Map<String, AudioFrameProcessor> processors = BenchmarkSupport.read(handler, "audioProcessors");
+            processors.put(client.getId(), new AudioPreprocessor(AudioFormat.UPSTREAM, true, -50, 10, 2000,
+                    new AudioPreprocessor.Stats()));
+        }
+
+        // Speech-level tone, so the gate forwards every frame
+        ByteBuffer audio = ByteBuffer.allocate(frameBytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < frameBytes / 2; i++) {
+            audio.putShort((short) (10000 * Math.sin(2 * Math.PI * 440 * i / 16000.0)));
+        }
+        audio.flip();
+        frame = new BinaryMessage(audio);
+    }
+
+    @TearDown
+    public void tearDown() {
+        flushScheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public long handleBinaryMessage() throws Exception {
+        frame.getPayload().rewind();
+        handler.handleMessage(client, frame);
+        return upstream.getPayloadBytesSent();
+    }
+}
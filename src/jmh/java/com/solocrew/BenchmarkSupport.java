@@ -0,0 +1,58 @@
+package com.solocrew;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.reflect.Field;
+
+/**
+ * Wiring for benchmarks that exercise Spring beans without a context: the beans use field
+ * injection, so collaborators are set reflectively.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /** Configured the way Spring Boot builds the shared mapper bean. */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    static PipelineMetrics pipelineMetrics() {
+        return new PipelineMetrics(new SimpleMeterRegistry());
+    }
+
+    static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + fieldName + " into " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T read(Object target, String fieldName) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return (T) field.get(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read " + fieldName + " from " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Sets the root log level to the app's default (INFO). Without a Spring context logback falls
+     * back to DEBUG, which would enable the payload logging that production skips.
+     */
+    static void productionLogLevels() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+    }
+}
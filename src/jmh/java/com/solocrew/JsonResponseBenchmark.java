@@ -0,0 +1,44 @@
+package com.solocrew;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialisation of the JSON messages the handler sends to clients: a status message and the
+ * per-turn transcript response.
+ *
+ * <pre>mvn -Pbenchmarks compile exec:exec -Djmh.args="JsonResponseBenchmark -prof gc"</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonResponseBenchmark {
+
+    private static final String CONVERSATION_UUID = "3f2b8c1e-6d4a-4f7e-9b0c-2a1d5e8f7c64";
+
+    private AudioStreamingWebSocketHandler handler;
+
+    @Setup
+    public void setUp() {
+        handler = new AudioStreamingWebSocketHandler();
+        BenchmarkSupport.inject(handler, "objectMapper", BenchmarkSupport.objectMapper());
+    }
+
+    @Benchmark
+    public String createJsonResponse() {
+        return handler.createJsonResponse("streaming_started", "Audio streaming started", CONVERSATION_UUID);
+    }
+
+    @Benchmark
+    public String createTranscriptResponse() {
+        return handler.createTranscriptResponse(
+                "I have been feeling really anxious about work lately.",
+                "That sounds really hard. It makes sense to feel anxious when work is piling up. "
+                        + "Would it help to talk through what is weighing on you most right now?",
+                false, CONVERSATION_UUID);
+    }
+}
@@ -0,0 +1,54 @@
+package com.solocrew;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the chat completion request body for a turn, as {@code generateEmpathyResponse} does
+ * before every call, for a short and a full context window. Logging runs at the production
+ * level, so the debug request body logging is skipped.
+ *
+ * <pre>mvn -Pbenchmarks compile exec:exec -Djmh.args="OpenAIRequestBenchmark -prof gc"</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OpenAIRequestBenchmark {
+
+    /** Messages after the system prompt: a first turn, and a window of several exchanges. */
+    @Param({"1", "12"})
+    public int historyMessages;
+
+    @Param({"true", "false"})
+    public boolean stream;
+
+    private OpenAIChatService chatService;
+    private List<ConversationMessage> context;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.productionLogLevels();
+        chatService = new OpenAIChatService();
+        BenchmarkSupport.inject(chatService, "objectMapper", BenchmarkSupport.objectMapper());
+        context = new ArrayList<>(new ConversationSession("bench").getMessages());
+        for (int i = 0; i < historyMessages; i++) {
+            context.add(i % 2 == 0
+                    ? new ConversationMessage("user", "I have been feeling really anxious about work lately, "
+                            + "and I can't sleep because I keep going over everything I still have to do.")
+                    : new ConversationMessage("assistant", "{\"reply\": \"That sounds exhausting. Lying awake with a "
+                            + "list running through your head is really hard. What feels most pressing?\", "
+                            + "\"isHumanInterventionNeeded\": false}"));
+        }
+    }
+
+    @Benchmark
+    public String buildRequestBody() throws Exception {
+        return chatService.buildRequestBody(context, stream);
+    }
+}
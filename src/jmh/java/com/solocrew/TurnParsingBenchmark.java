@@ -0,0 +1,82 @@
+package com.solocrew;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handling of one upstream {@code Turn} message by the streaming connection: JSON parsing,
+ * dispatch and (for a formatted turn) the transcript callback. Partial turns arrive several
+ * times a second per speaking client, so they dominate. Logging runs at the production level, so
+ * debug payload logging is skipped as it is in production.
+ *
+ * <pre>mvn -Pbenchmarks compile exec:exec -Djmh.args="TurnParsingBenchmark -prof gc"</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TurnParsingBenchmark {
+
+    private static final String WORDS = "i have been feeling really anxious about work lately";
+
+    @Param({"partial", "final"})
+    public String turn;
+
+    private AssemblyAIStreamingServiceV2.UpstreamConnection connection;
+    private NoopWebSocketSession upstream;
+    private TextMessage message;
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws Exception {
+        BenchmarkSupport.productionLogLevels();
+        AssemblyAIStreamingServiceV2 service = new AssemblyAIStreamingServiceV2();
+        BenchmarkSupport.inject(service, "pipelineMetrics", BenchmarkSupport.pipelineMetrics());
+        BenchmarkSupport.inject(service, "objectMapper", BenchmarkSupport.objectMapper());
+        upstream = new NoopWebSocketSession("upstream");
+        connection = service.new UpstreamConnection();
+        connection.afterConnectionEstablished(upstream);
+        connection.bind("bench", new AssemblyAIStreamingServiceV2.TranscriptCallback() {
+            @Override
+            public void onTranscript(String text, boolean isFinal) {
+                blackhole.consume(text);
+            }
+
+            @Override
+            public void onClose() {
+            }
+
+            @Override
+            public void onError(Exception ex) {
+            }
+        });
+        message = new TextMessage(turnMessage(turn.equals("final")));
+    }
+
+    /** A v3 {@code Turn} message with per-word timings, as the streaming API sends it. */
+    static String turnMessage(boolean formatted) {
+        String[] words = WORDS.split(" ");
+        StringBuilder json = new StringBuilder("{\"turn_order\":3,\"turn_is_formatted\":").append(formatted)
+                .append(",\"end_of_turn\":").append(formatted)
+                .append(",\"transcript\":\"").append(formatted ? "I have been feeling really anxious about work lately." : WORDS)
+                .append("\",\"end_of_turn_confidence\":").append(formatted ? 0.91 : 0.12)
+                .append(",\"words\":[");
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"start\":").append(1200 + i * 240).append(",\"end\":").append(1400 + i * 240)
+                    .append(",\"text\":\"").append(words[i]).append("\",\"confidence\":0.97,\"word_is_final\":true}");
+        }
+        return json.append("],\"type\":\"Turn\"}").toString();
+    }
+
+    @Benchmark
+    public void handleTurn() throws Exception {
+        connection.handleMessage(upstream, message);
+    }
+}
@@ -0,0 +1,70 @@
+package com.solocrew;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the high-frequency vendor messages: upstream streaming {@code Turn}s and streamed
+ * chat completion chunks. {@code treeModel} extracts the used fields from a {@code readTree}
+ * tree, as the services did before; {@code streamingParser} is the {@link StreamingMessage} /
+ * {@link ChatCompletionChunk} decoder they use now. Compare allocated bytes per op.
+ *
+ * <pre>mvn -Pbenchmarks compile exec:exec -Djmh.args="VendorMessageDecodingBenchmark -prof gc"</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VendorMessageDecodingBenchmark {
+
+    private static final String CHAT_CHUNK = "{\"id\":\"chatcmpl-9xQ2rTbL0sVq8mKcY3nW1aZ7pDfE\",\"object\":\"chat.completion.chunk\","
+            + "\"created\":1718035200,\"model\":\"gpt-4o-2024-05-13\",\"system_fingerprint\":\"fp_319be4768e\","
+            + "\"choices\":[{\"index\":0,\"delta\":{\"content\":\" really\"},\"logprobs\":null,\"finish_reason\":null}],"
+            + "\"usage\":null}";
+
+    @Param({"turn-partial", "turn-final", "chat-chunk"})
+    public String message;
+
+    private ObjectMapper objectMapper;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        objectMapper = BenchmarkSupport.objectMapper();
+        json = switch (message) {
+            case "turn-partial" -> TurnParsingBenchmark.turnMessage(false);
+            case "turn-final" -> TurnParsingBenchmark.turnMessage(true);
+            default -> CHAT_CHUNK;
+        };
+    }
+
+    @Benchmark
+    public void treeModel(Blackhole blackhole) throws Exception {
+        JsonNode tree = objectMapper.readTree(json);
+        if (message.equals("chat-chunk")) {
+            JsonNode delta = tree.path("choices").path(0).path("delta").path("content");
+            blackhole.consume(delta.isTextual() ? delta.asText() : "");
+            JsonNode usage = tree.path("usage");
+            if (usage.isObject()) {
+                blackhole.consume(usage.path("prompt_tokens").asInt());
+            }
+        } else {
+            blackhole.consume(tree.has("type") ? tree.get("type").asText() : null);
+            blackhole.consume(tree.has("transcript") ? tree.get("transcript").asText() : "");
+            blackhole.consume(tree.has("turn_is_formatted") && tree.get("turn_is_formatted").asBoolean());
+        }
+    }
+
+    @Benchmark
+    public Object streamingParser() throws Exception {
+        return message.equals("chat-chunk")
+                ? ChatCompletionChunk.decode(objectMapper.getFactory(), json)
+                : StreamingMessage.decode(objectMapper.getFactory(), json);
+    }
+}
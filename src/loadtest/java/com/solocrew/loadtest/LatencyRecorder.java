@@ -0,0 +1,78 @@
+package com.solocrew.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Turn latencies and errors of one run. Samples before {@link #startMeasuring} are warm-up and
+ * dropped. Exact percentiles over all samples: a run records at most a few thousand turns.
+ */
+final class LatencyRecorder {
+
+    private long[] latenciesNanos = new long[1024];
+    private int count;
+    private int errors;
+    private boolean measuring;
+    private long measuringSinceNanos;
+    private long measuringUntilNanos;
+
+    synchronized void startMeasuring() {
+        measuring = true;
+        measuringSinceNanos = System.nanoTime();
+    }
+
+    synchronized void stopMeasuring() {
+        measuring = false;
+        measuringUntilNanos = System.nanoTime();
+    }
+
+    synchronized void record(long latencyNanos) {
+        if (!measuring) {
+            return;
+        }
+        if (count == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+        }
+        latenciesNanos[count++] = latencyNanos;
+    }
+
+    synchronized void error() {
+        if (measuring) {
+            errors++;
+        }
+    }
+
+    synchronized Summary summarize() {
+        long[] sorted = Arrays.copyOf(latenciesNanos, count);
+        Arrays.sort(sorted);
+        double seconds = Math.max(1, measuringUntilNanos - measuringSinceNanos) / 1e9;
+        return new Summary(count, errors, count / seconds, percentileMs(sorted, 50), percentileMs(sorted, 99),
+                sorted.length == 0 ? Double.NaN : sorted[sorted.length - 1] / 1e6);
+    }
+
+    /** Nearest-rank percentile, in milliseconds; NaN without samples. */
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    static final class Summary {
+        final int turns;
+        final int errors;
+        final double turnsPerSecond;
+        final double p50Ms;
+        final double p99Ms;
+        final double maxMs;
+
+        Summary(int turns, int errors, double turnsPerSecond, double p50Ms, double p99Ms, double maxMs) {
+            this.turns = turns;
+            this.errors = errors;
+            this.turnsPerSecond = turnsPerSecond;
+            this.p50Ms = p50Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+        }
+    }
+}
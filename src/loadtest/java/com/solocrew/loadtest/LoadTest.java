@@ -0,0 +1,261 @@
+package com.solocrew.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test of the voice pipeline against local stand-ins for AssemblyAI and OpenAI.
+ * Starts the stand-ins and (unless {@code --app-url} is given) the app itself in a child JVM
+ * pointed at them, then for each concurrency level and path runs that many simulated callers
+ * and reports turn latency percentiles, throughput and the app's resource use.
+ *
+ * <pre>mvn -Ploadtest compile exec:exec -Dloadtest.args="--levels=1,8,32 --duration-s=60"</pre>
+ *
+ * See {@link LoadTestOptions} for the options.
+ */
+public final class LoadTest {
+
+    private static final String APP_MAIN_CLASS = "com.solocrew.AppStart";
+    private static final Duration APP_STARTUP_TIMEOUT = Duration.ofSeconds(90);
+    /** Lets in-flight turns finish between runs so they don't count against the next one. */
+    private static final long DRAIN_MS = 3000;
+
+    private final LoadTestOptions options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ScheduledExecutorService scheduler;
+
+    private LoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        new LoadTest(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        StubStreamingServer streamingStub = new StubStreamingServer(options.streamingPort, options);
+        streamingStub.startAndWait();
+        StubHttpServer httpStub = new StubHttpServer(options.httpPort, options);
+        httpStub.start();
+        String streamingUrl = "ws://127.0.0.1:" + streamingStub.getPort() + "/v3/ws";
+        String httpUrl = "http://127.0.0.1:" + httpStub.getPort();
+        System.out.println("Streaming stand-in: " + streamingUrl);
+        System.out.println("HTTP stand-in:      " + httpUrl);
+
+        Process app = null;
+        String appUrl = options.appUrl;
+        try {
+            if (appUrl.isEmpty()) {
+                app = startApp(streamingUrl, httpUrl);
+                appUrl = "http://127.0.0.1:" + options.appPort;
+            }
+            awaitHealthy(appUrl, app);
+            System.out.println("App: " + appUrl);
+
+            List<String[]> rows = new ArrayList<>();
+            for (int callers : options.levels) {
+                for (String path : options.paths) {
+                    System.out.printf(Locale.ROOT, "Running %s with %d callers for %d s (+%d s warm-up)...%n",
+                            path, callers, options.durationSeconds, options.warmupSeconds);
+                    rows.add(runLevel(appUrl, path.trim(), callers));
+                }
+            }
+            report(rows);
+            System.out.printf(Locale.ROOT, "Stand-ins served %d streaming sessions (%d turns, %d MB audio), "
+                            + "%d chat completions, %d speech requests, %d uploads%n",
+                    streamingStub.sessions.get(), streamingStub.turns.get(), streamingStub.audioBytes.get() / (1024 * 1024),
+                    httpStub.chatRequests.get(), httpStub.speechRequests.get(), httpStub.uploads.get());
+        } finally {
+            if (app != null) {
+                app.destroy();
+                app.waitFor(15, TimeUnit.SECONDS);
+            }
+            streamingStub.shutdown();
+            httpStub.shutdown();
+            scheduler.shutdownNow();
+        }
+    }
+
+    private Process startApp(String streamingUrl, String httpUrl) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(split(options.appJvmArgs));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(APP_MAIN_CLASS);
+        command.add("--server.port=" + options.appPort);
+        command.add("--assemblyai.api.key=loadtest");
+        command.add("--assemblyai.api.base-url=" + httpUrl);
+        command.add("--assemblyai.streaming.url=" + streamingUrl);
+        command.add("--openai.api.key=loadtest");
+        command.add("--openai.api.base-url=" + httpUrl);
+        command.add("--conversation.persistence.type=none");
+        command.addAll(split(options.appArgs));
+
+        File log = new File("target/loadtest/app.log");
+        Files.createDirectories(log.toPath().getParent());
+        System.out.println("Starting app, output in " + log);
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroy));
+        return process;
+    }
+
+    private void awaitHealthy(String appUrl, Process app) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(appUrl + "/actuator/health"))
+                .timeout(Duration.ofSeconds(2))
+                .build();
+        long deadline = System.nanoTime() + APP_STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (app != null && !app.isAlive()) {
+                throw new IllegalStateException("App exited during startup with code " + app.exitValue()
+                        + ", see target/loadtest/app.log");
+            }
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("App at " + appUrl + " did not become healthy within " + APP_STARTUP_TIMEOUT);
+    }
+
+    private String[] runLevel(String appUrl, String path, int callers) throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder();
+        ResourceSampler sampler = new ResourceSampler(httpClient, objectMapper, appUrl);
+        List<Runnable> stops = new ArrayList<>();
+        List<Thread> restThreads = new ArrayList<>();
+
+        if ("websocket".equals(path)) {
+            URI uri = URI.create(appUrl.replaceFirst("^http", "ws") + "/ws/audio-stream-native");
+            List<CompletableFuture<Void>> connected = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                StreamingCaller caller = new StreamingCaller(objectMapper, options, recorder);
+                connected.add(caller.start(httpClient, uri, scheduler));
+                stops.add(caller::stop);
+            }
+            CompletableFuture.allOf(connected.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+        } else if ("rest".equals(path)) {
+            URI uri = URI.create(appUrl + "/api/audio");
+            byte[] wav = SyntheticAudio.wav(options.utteranceMs, 300);
+            for (int i = 0; i < callers; i++) {
+                RestCaller caller = new RestCaller(httpClient, uri, wav, options, recorder);
+                Thread thread = new Thread(caller, "loadtest-rest-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                restThreads.add(thread);
+                stops.add(caller::stop);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown path '" + path + "', expected websocket or rest");
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmupSeconds));
+        recorder.startMeasuring();
+        sampler.start(scheduler);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds));
+        recorder.stopMeasuring();
+        ResourceSampler.Summary resources = sampler.stop();
+        stops.forEach(Runnable::run);
+        Thread.sleep(DRAIN_MS);
+        // Uploads still in flight would otherwise overlap the next run, or the app's shutdown
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.turnTimeoutMs);
+        for (Thread thread : restThreads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+
+        LatencyRecorder.Summary latency = recorder.summarize();
+        return new String[] {
+                path,
+                String.valueOf(callers),
+                String.valueOf(latency.turns),
+                String.valueOf(latency.errors),
+                format(latency.turnsPerSecond, 2),
+                format(latency.p50Ms, 0),
+                format(latency.p99Ms, 0),
+                format(latency.maxMs, 0),
+                format(resources.cpuAveragePercent, 1),
+                format(resources.cpuMaxPercent, 1),
+                format(resources.heapMaxMb, 0),
+                String.valueOf(resources.threadsMax),
+                format(resources.gcPauseMs, 0)
+        };
+    }
+
+    private void report(List<String[]> rows) throws IOException {
+        String[] header = {"path", "callers", "turns", "errors", "turns/s", "p50 ms", "p99 ms", "max ms",
+                "cpu avg %", "cpu max %", "heap max MB", "threads max", "gc pause ms"};
+        int[] widths = new int[header.length];
+        for (String[] row : concat(header, rows)) {
+            for (int i = 0; i < row.length; i++) {
+                widths[i] = Math.max(widths[i], row[i].length());
+            }
+        }
+        System.out.println();
+        for (String[] row : concat(header, rows)) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < row.length; i++) {
+                line.append(String.format(Locale.ROOT, i == 0 ? "%-" + widths[i] + "s" : "  %" + widths[i] + "s", row[i]));
+            }
+            System.out.println(line);
+        }
+
+        Path csv = Path.of(options.reportFile);
+        if (csv.getParent() != null) {
+            Files.createDirectories(csv.getParent());
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv))) {
+            for (String[] row : concat(header, rows)) {
+                out.println(String.join(",", row));
+            }
+        }
+        System.out.println();
+        System.out.println("Report written to " + csv);
+    }
+
+    private static List<String[]> concat(String[] header, List<String[]> rows) {
+        List<String[]> all = new ArrayList<>(rows.size() + 1);
+        all.add(header);
+        all.addAll(rows);
+        return all;
+    }
+
+    private static String format(double value, int decimals) {
+        return Double.isNaN(value) ? "-" : String.format(Locale.ROOT, "%." + decimals + "f", value);
+    }
+
+    private static List<String> split(String args) {
+        return args.isBlank() ? List.of() : Arrays.asList(args.trim().split("\\s+"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.solocrew.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line options of the load test, given as {@code --name=value}. Every option has a
+ * default, so a bare run starts the stand-ins and the app and sweeps a few concurrency levels.
+ */
+final class LoadTestOptions {
+
+    /** Concurrent callers per run, one run per level and path. */
+    final int[] levels;
+    /** {@code websocket}, {@code rest} or both. */
+    final List<String> paths;
+    final int durationSeconds;
+    final int warmupSeconds;
+
+    /** Base URL of an already running app (pointed at the stand-ins); empty to start one. */
+    final String appUrl;
+    final int appPort;
+    final String appJvmArgs;
+    final String appArgs;
+
+    /** Stand-in ports; 0 picks a free port, fixed ports are only needed with {@link #appUrl}. */
+    final int streamingPort;
+    final int httpPort;
+
+    // Caller behaviour
+    final int utteranceMs;
+    final int thinkMs;
+    final int turnTimeoutMs;
+
+    // Simulated upstream latencies
+    final int partialIntervalMs;
+    final int endOfTurnSilenceMs;
+    final int formatDelayMs;
+    final int chatFirstTokenMs;
+    final int chatTokenIntervalMs;
+    final int speechDelayMs;
+    final int speechBytes;
+    final int transcriptDelayMs;
+
+    final String reportFile;
+
+    private LoadTestOptions(Map<String, String> values) {
+        levels = Arrays.stream(values.getOrDefault("levels", "1,4,16").split(","))
+                .map(String::trim).mapToInt(Integer::parseInt).toArray();
+        paths = List.of(values.getOrDefault("paths", "websocket,rest").split(","));
+        durationSeconds = intValue(values, "duration-s", 30);
+        warmupSeconds = intValue(values, "warmup-s", 5);
+        appUrl = values.getOrDefault("app-url", "");
+        appPort = intValue(values, "app-port", 18080);
+        appJvmArgs = values.getOrDefault("app-jvm-args", "-Xmx512m");
+        appArgs = values.getOrDefault("app-args", "");
+        streamingPort = intValue(values, "streaming-port", 0);
+        httpPort = intValue(values, "http-port", 0);
+        utteranceMs = intValue(values, "utterance-ms", 1500);
+        thinkMs = intValue(values, "think-ms", 500);
+        turnTimeoutMs = intValue(values, "turn-timeout-ms", 30000);
+        partialIntervalMs = intValue(values, "partial-interval-ms", 300);
+        endOfTurnSilenceMs = intValue(values, "end-of-turn-silence-ms", 700);
+        formatDelayMs = intValue(values, "format-delay-ms", 300);
+        chatFirstTokenMs = intValue(values, "chat-first-token-ms", 400);
+        chatTokenIntervalMs = intValue(values, "chat-token-interval-ms", 30);
+        speechDelayMs = intValue(values, "speech-delay-ms", 300);
+        speechBytes = intValue(values, "speech-bytes", 24000);
+        transcriptDelayMs = intValue(values, "transcript-delay-ms", 1500);
+        reportFile = values.getOrDefault("report", "target/loadtest/report.csv");
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                unknown.add(arg);
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Options must be given as --name=value: " + unknown);
+        }
+        return new LoadTestOptions(values);
+    }
+
+    private static int intValue(Map<String, String> values, String name, int defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
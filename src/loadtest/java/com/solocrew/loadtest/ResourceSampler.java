@@ -0,0 +1,111 @@
+package com.solocrew.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the app's resource use once a second from its actuator metrics endpoint: process CPU,
+ * heap in use and live threads, plus GC pause time accumulated over the run.
+ */
+final class ResourceSampler {
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String metricsUrl;
+
+    private ScheduledFuture<?> task;
+    private double gcPauseSecondsAtStart;
+
+    // Guarded by this
+    private int samples;
+    private double cpuSum;
+    private double cpuMax;
+    private double heapMaxBytes;
+    private double threadsMax;
+
+    ResourceSampler(HttpClient httpClient, ObjectMapper objectMapper, String appUrl) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.metricsUrl = appUrl + "/actuator/metrics/";
+    }
+
+    void start(ScheduledExecutorService scheduler) {
+        gcPauseSecondsAtStart = gcPauseSeconds();
+        task = scheduler.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+    }
+
+    synchronized Summary stop() {
+        task.cancel(false);
+        return new Summary(samples == 0 ? Double.NaN : cpuSum / samples * 100, cpuMax * 100,
+                heapMaxBytes / (1024 * 1024), (int) threadsMax, (gcPauseSeconds() - gcPauseSecondsAtStart) * 1000);
+    }
+
+    private void sample() {
+        double cpu = value("process.cpu.usage", "VALUE");
+        double heap = value("jvm.memory.used?tag=area:heap", "VALUE");
+        double threads = value("jvm.threads.live", "VALUE");
+        synchronized (this) {
+            if (!Double.isNaN(cpu)) {
+                samples++;
+                cpuSum += cpu;
+                cpuMax = Math.max(cpuMax, cpu);
+            }
+            heapMaxBytes = Math.max(heapMaxBytes, Double.isNaN(heap) ? 0 : heap);
+            threadsMax = Math.max(threadsMax, Double.isNaN(threads) ? 0 : threads);
+        }
+    }
+
+    private double gcPauseSeconds() {
+        double total = value("jvm.gc.pause", "TOTAL_TIME");
+        // No collection yet means no meter yet
+        return Double.isNaN(total) ? 0 : total;
+    }
+
+    /** A statistic of an actuator metric, or NaN if it is not available. */
+    private double value(String metric, String statistic) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(metricsUrl + metric))
+                    .timeout(Duration.ofSeconds(2))
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return Double.NaN;
+            }
+            for (JsonNode measurement : objectMapper.readTree(response.body()).path("measurements")) {
+                if (statistic.equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Sampled again next second
+        }
+        return Double.NaN;
+    }
+
+    static final class Summary {
+        final double cpuAveragePercent;
+        final double cpuMaxPercent;
+        final double heapMaxMb;
+        final int threadsMax;
+        final double gcPauseMs;
+
+        Summary(double cpuAveragePercent, double cpuMaxPercent, double heapMaxMb, int threadsMax, double gcPauseMs) {
+            this.cpuAveragePercent = cpuAveragePercent;
+            this.cpuMaxPercent = cpuMaxPercent;
+            this.heapMaxMb = heapMaxMb;
+            this.threadsMax = threadsMax;
+            this.gcPauseMs = gcPauseMs;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.solocrew.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * One simulated client of {@code POST /api/audio}: uploads a WAV utterance, waits for the reply,
+ * pauses for the think time and repeats. Turn latency is the request's round trip.
+ */
+final class RestCaller implements Runnable {
+
+    private final HttpClient httpClient;
+    private final URI uri;
+    private final LoadTestOptions options;
+    private final LatencyRecorder recorder;
+    private final byte[] body;
+    private final String boundary = "loadtest-" + UUID.randomUUID();
+    private volatile boolean running = true;
+
+    RestCaller(HttpClient httpClient, URI uri, byte[] wav, LoadTestOptions options, LatencyRecorder recorder) {
+        this.httpClient = httpClient;
+        this.uri = uri;
+        this.options = options;
+        this.recorder = recorder;
+        this.body = multipart(wav, UUID.randomUUID().toString());
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(options.turnTimeoutMs))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        while (running) {
+            long startedNanos = System.nanoTime();
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    recorder.record(System.nanoTime() - startedNanos);
+                } else {
+                    recorder.error();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                recorder.error();
+            }
+            try {
+                Thread.sleep(options.thinkMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private byte[] multipart(byte[] wav, String conversationUuid) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(wav.length + 512);
+        String uuidPart = "--" + boundary + "\r\nContent-Disposition: form-data; name=\"uuid\"\r\n\r\n"
+                + conversationUuid + "\r\n";
+        String filePart = "--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"utterance.wav\"\r\n"
+                + "Content-Type: audio/wav\r\n\r\n";
+        out.writeBytes(uuidPart.getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(filePart.getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(wav);
+        out.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+}
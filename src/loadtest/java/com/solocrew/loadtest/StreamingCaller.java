@@ -0,0 +1,177 @@
+package com.solocrew.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated client on {@code /ws/audio-stream-native}: starts streaming, then repeatedly
+ * speaks an utterance in real time (20 ms frames), keeps sending silence until the
+ * {@code transcript} message for the turn arrives, and pauses for the think time. Turn latency
+ * runs from the last speech frame sent to the {@code transcript} message, so it covers the
+ * end-of-turn silence, upstream formatting and the whole reply pipeline.
+ */
+final class StreamingCaller implements WebSocket.Listener {
+
+    private enum State { CONNECTING, SPEAKING, AWAITING_REPLY, THINKING, STOPPED }
+
+    private static final ByteBuffer TONE = SyntheticAudio.toneFrame();
+    private static final ByteBuffer SILENCE = SyntheticAudio.silenceFrame();
+
+    private final ObjectMapper objectMapper;
+    private final LoadTestOptions options;
+    private final LatencyRecorder recorder;
+    private final String conversationUuid = UUID.randomUUID().toString();
+    private final StringBuilder text = new StringBuilder();
+
+    private volatile WebSocket webSocket;
+    private volatile ScheduledFuture<?> ticker;
+    private volatile CompletableFuture<?> lastSend = CompletableFuture.completedFuture(null);
+
+    // Guarded by this
+    private State state = State.CONNECTING;
+    private int spokenMs;
+    private long lastSpeechNanos;
+    private long thinkUntilNanos;
+
+    StreamingCaller(ObjectMapper objectMapper, LoadTestOptions options, LatencyRecorder recorder) {
+        this.objectMapper = objectMapper;
+        this.options = options;
+        this.recorder = recorder;
+    }
+
+    CompletableFuture<Void> start(HttpClient httpClient, URI uri, ScheduledExecutorService scheduler) {
+        return httpClient.newWebSocketBuilder()
+                .buildAsync(uri, this)
+                .thenCompose(ws -> {
+                    webSocket = ws;
+                    return ws.sendText("{\"type\":\"start_streaming\",\"conversation_uuid\":\"" + conversationUuid + "\"}", true);
+                })
+                .thenAccept(ws -> ticker = scheduler.scheduleAtFixedRate(this::tick,
+                        SyntheticAudio.FRAME_MS, SyntheticAudio.FRAME_MS, TimeUnit.MILLISECONDS));
+    }
+
+    void stop() {
+        synchronized (this) {
+            state = State.STOPPED;
+        }
+        if (ticker != null) {
+            ticker.cancel(false);
+        }
+        if (webSocket != null) {
+            lastSend.handle((result, error) -> webSocket.sendText("{\"type\":\"stop_streaming\"}", true))
+                    .thenCompose(sent -> sent)
+                    .thenCompose(ws -> ws.sendClose(WebSocket.NORMAL_CLOSURE, "done"))
+                    .exceptionally(e -> null);
+        }
+    }
+
+    private void tick() {
+        ByteBuffer frame;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (state == State.CONNECTING || state == State.STOPPED) {
+                return;
+            }
+            if (state == State.THINKING && now >= thinkUntilNanos) {
+                state = State.SPEAKING;
+                spokenMs = 0;
+            }
+            if (state == State.AWAITING_REPLY && now - lastSpeechNanos > TimeUnit.MILLISECONDS.toNanos(options.turnTimeoutMs)) {
+                recorder.error();
+                think(now);
+            }
+            if (state == State.SPEAKING) {
+                frame = TONE;
+                spokenMs += SyntheticAudio.FRAME_MS;
+                if (spokenMs >= options.utteranceMs) {
+                    state = State.AWAITING_REPLY;
+                    lastSpeechNanos = now;
+                }
+            } else {
+                frame = SILENCE;
+            }
+        }
+        // A send still in flight means the socket is backed up; skip the frame rather than queue it
+        if (lastSend.isDone()) {
+            lastSend = webSocket.sendBinary(frame.duplicate(), true);
+        }
+    }
+
+    private void think(long now) {
+        state = State.THINKING;
+        thinkUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(options.thinkMs);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        text.append(data);
+        if (last) {
+            onMessage(text.toString());
+            text.setLength(0);
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    private void onMessage(String message) {
+        String type;
+        try {
+            JsonNode json = objectMapper.readTree(message);
+            type = json.path("type").asText();
+        } catch (Exception e) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            switch (type) {
+                case "streaming_started":
+                    if (state == State.CONNECTING) {
+                        state = State.SPEAKING;
+                    }
+                    break;
+                case "transcript":
+                    if (state == State.AWAITING_REPLY) {
+                        recorder.record(now - lastSpeechNanos);
+                        think(now);
+                    }
+                    break;
+                case "error":
+                    recorder.error();
+                    if (state == State.AWAITING_REPLY || state == State.SPEAKING) {
+                        think(now);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+        // Reply audio (pipelined TTS); not timed
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        synchronized (this) {
+            if (state != State.STOPPED) {
+                recorder.error();
+                state = State.STOPPED;
+            }
+        }
+    }
+}
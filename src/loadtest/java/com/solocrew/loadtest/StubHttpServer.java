@@ -0,0 +1,181 @@
+package com.solocrew.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for the HTTP APIs the app calls, with configurable latencies:
+ * <ul>
+ *   <li>{@code POST /v1/chat/completions}: a fixed reply in the JSON shape the system prompt asks
+ *       for, streamed as SSE chunks (first token delay, then one chunk per token interval, a usage
+ *       chunk and {@code [DONE]}) or returned whole after the same total time;</li>
+ *   <li>{@code POST /v1/audio/speech}: opaque "MP3" bytes after a delay;</li>
+ *   <li>{@code POST /v2/upload}, {@code POST /v2/transcript} and {@code GET /v2/transcript/{id}}:
+ *       AssemblyAI's batch API, a transcript completing a fixed time after it was requested.</li>
+ * </ul>
+ * Delays are slept on the server's own threads, which is fine for a stand-in.
+ */
+final class StubHttpServer {
+
+    private static final String REPLY = "That sounds really hard. It makes sense to feel anxious when work keeps piling up. "
+            + "Would it help to talk through what is weighing on you most right now?";
+    private static final String TRANSCRIPT = "I have been feeling really anxious about work lately.";
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LoadTestOptions options;
+    private final Map<String, Long> transcriptsRequestedAt = new ConcurrentHashMap<>();
+
+    final AtomicLong chatRequests = new AtomicLong();
+    final AtomicLong speechRequests = new AtomicLong();
+    final AtomicLong uploads = new AtomicLong();
+
+    StubHttpServer(int port, LoadTestOptions options) throws IOException {
+        this.options = options;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", exchange -> handle(exchange, this::chatCompletion));
+        server.createContext("/v1/audio/speech", exchange -> handle(exchange, this::speech));
+        server.createContext("/v2/upload", exchange -> handle(exchange, this::upload));
+        server.createContext("/v2/transcript", exchange -> handle(exchange, this::transcript));
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void shutdown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) {
+        try (exchange) {
+            handler.handle(exchange);
+        } catch (Exception e) {
+            System.err.println("Stub " + exchange.getRequestURI() + " failed: " + e.getMessage());
+        }
+    }
+
+    private void chatCompletion(HttpExchange exchange) throws Exception {
+        chatRequests.incrementAndGet();
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        String content = objectMapper.writeValueAsString(Map.of("reply", REPLY, "isHumanInterventionNeeded", false));
+        int promptTokens = request.path("messages").toString().length() / CHARS_PER_TOKEN;
+        int completionTokens = (content.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+        String usage = "{\"prompt_tokens\":" + promptTokens + ",\"completion_tokens\":" + completionTokens
+                + ",\"total_tokens\":" + (promptTokens + completionTokens) + "}";
+
+        Thread.sleep(options.chatFirstTokenMs);
+        if (!request.path("stream").asBoolean(false)) {
+            Thread.sleep((long) options.chatTokenIntervalMs * completionTokens);
+            String body = "{\"id\":\"chatcmpl-stub\",\"object\":\"chat.completion\",\"choices\":[{\"index\":0,"
+                    + "\"message\":{\"role\":\"assistant\",\"content\":" + objectMapper.writeValueAsString(content)
+                    + "},\"finish_reason\":\"stop\"}],\"usage\":" + usage + "}";
+            send(exchange, 200, "application/json", body.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < content.length(); i += CHARS_PER_TOKEN) {
+            if (i > 0) {
+                Thread.sleep(options.chatTokenIntervalMs);
+            }
+            String token = content.substring(i, Math.min(content.length(), i + CHARS_PER_TOKEN));
+            writeEvent(out, "{\"id\":\"chatcmpl-stub\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,"
+                    + "\"delta\":{\"content\":" + objectMapper.writeValueAsString(token) + "},\"finish_reason\":null}]}");
+        }
+        writeEvent(out, "{\"id\":\"chatcmpl-stub\",\"object\":\"chat.completion.chunk\",\"choices\":[],\"usage\":" + usage + "}");
+        writeEvent(out, "[DONE]");
+    }
+
+    private void speech(HttpExchange exchange) throws Exception {
+        speechRequests.incrementAndGet();
+        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+        Thread.sleep(options.speechDelayMs);
+        byte[] audio = new byte[options.speechBytes];
+        // An MPEG frame sync at the start, in case anything sniffs the content
+        if (audio.length >= 2) {
+            audio[0] = (byte) 0xFF;
+            audio[1] = (byte) 0xFB;
+        }
+        send(exchange, 200, "audio/mpeg", audio);
+    }
+
+    private void upload(HttpExchange exchange) throws Exception {
+        uploads.incrementAndGet();
+        try (InputStream body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        sendJson(exchange, "{\"upload_url\":\"http://127.0.0.1:" + getPort() + "/uploads/" + UUID.randomUUID() + "\"}");
+    }
+
+    private void transcript(HttpExchange exchange) throws Exception {
+        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+        String path = exchange.getRequestURI().getPath();
+        if ("POST".equals(exchange.getRequestMethod())) {
+            String id = UUID.randomUUID().toString();
+            transcriptsRequestedAt.put(id, System.nanoTime());
+            sendJson(exchange, "{\"id\":\"" + id + "\",\"status\":\"queued\"}");
+            return;
+        }
+        String id = path.substring(path.lastIndexOf('/') + 1);
+        Long requestedAt = transcriptsRequestedAt.get(id);
+        if (requestedAt == null) {
+            send(exchange, 404, "application/json", "{\"error\":\"Transcript not found\"}".getBytes(StandardCharsets.UTF_8));
+        } else if ((System.nanoTime() - requestedAt) / 1_000_000 < options.transcriptDelayMs) {
+            sendJson(exchange, "{\"id\":\"" + id + "\",\"status\":\"processing\"}");
+        } else {
+            transcriptsRequestedAt.remove(id);
+            sendJson(exchange, "{\"id\":\"" + id + "\",\"status\":\"completed\",\"text\":\"" + TRANSCRIPT + "\"}");
+        }
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendJson(HttpExchange exchange, String body) throws IOException {
+        send(exchange, 200, "application/json", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
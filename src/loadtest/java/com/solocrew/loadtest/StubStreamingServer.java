@@ -0,0 +1,179 @@
+package com.solocrew.loadtest;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for the AssemblyAI v3 streaming endpoint. Speaks enough of the protocol for the app:
+ * {@code Begin} on connect, partial {@code Turn}s while audio carries energy, an unformatted
+ * end-of-turn {@code Turn} after a run of silence and the formatted one after a further delay,
+ * and {@code Termination} on {@code Terminate}. Turn boundaries come from the audio itself, so
+ * the app's preprocessing, coalescing and send queue are all on the measured path.
+ */
+final class StubStreamingServer extends WebSocketServer {
+
+    private static final String SENTENCE = "i have been feeling really anxious about work lately and i keep going over "
+            + "everything i still have to do before the end of the week";
+    private static final String[] WORDS = SENTENCE.split(" ");
+    private static final int MS_PER_WORD = 250;
+    /** RMS on the 16-bit scale; the callers' tone is far above it, digital silence far below. */
+    private static final double SPEECH_RMS = 500;
+
+    private final int partialIntervalMs;
+    private final int endOfTurnSilenceMs;
+    private final int formatDelayMs;
+    private final ScheduledExecutorService formatScheduler;
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    final AtomicLong sessions = new AtomicLong();
+    final AtomicLong audioBytes = new AtomicLong();
+    final AtomicLong turns = new AtomicLong();
+
+    StubStreamingServer(int port, LoadTestOptions options) {
+        super(new InetSocketAddress("127.0.0.1", port));
+        this.partialIntervalMs = options.partialIntervalMs;
+        this.endOfTurnSilenceMs = options.endOfTurnSilenceMs;
+        this.formatDelayMs = options.formatDelayMs;
+        this.formatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stub-stt-format");
+            thread.setDaemon(true);
+            return thread;
+        });
+        setReuseAddr(true);
+        setConnectionLostTimeout(0);
+    }
+
+    void startAndWait() throws InterruptedException {
+        start();
+        if (!started.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Stub streaming server did not start");
+        }
+    }
+
+    void shutdown() throws InterruptedException {
+        formatScheduler.shutdownNow();
+        stop(1000);
+    }
+
+    @Override
+    public void onStart() {
+        started.countDown();
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        sessions.incrementAndGet();
+        conn.setAttachment(new TurnState());
+        conn.send("{\"type\":\"Begin\",\"id\":\"" + UUID.randomUUID() + "\",\"expires_at\":"
+                + (System.currentTimeMillis() / 1000 + 3600) + "}");
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer audio) {
+        int bytes = audio.remaining();
+        audioBytes.addAndGet(bytes);
+        TurnState state = conn.getAttachment();
+        int audioMs = bytes / (SyntheticAudio.SAMPLE_RATE / 1000 * 2);
+        boolean speech = SyntheticAudio.rms(audio) >= SPEECH_RMS;
+        synchronized (state) {
+            state.audioMs += audioMs;
+            if (speech) {
+                state.speech(conn, audioMs);
+            } else {
+                state.silence(conn, audioMs);
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        if (message.contains("\"Terminate\"")) {
+            TurnState state = conn.getAttachment();
+            conn.send("{\"type\":\"Termination\",\"audio_duration_seconds\":" + state.audioMs / 1000
+                    + ",\"session_duration_seconds\":" + state.audioMs / 1000 + "}");
+            conn.close();
+        }
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        if (conn == null) {
+            System.err.println("Stub streaming server error: " + ex.getMessage());
+        }
+    }
+
+    /** Per-connection turn detection; guarded by its own monitor. */
+    private final class TurnState {
+        long audioMs;
+        int turnOrder;
+        int speechMs;
+        int silenceMs;
+        int lastPartialMs;
+
+        void speech(WebSocket conn, int ms) {
+            speechMs += ms;
+            silenceMs = 0;
+            if (speechMs - lastPartialMs >= partialIntervalMs) {
+                lastPartialMs = speechMs;
+                conn.send(turn(false, false));
+            }
+        }
+
+        void silence(WebSocket conn, int ms) {
+            if (speechMs == 0) {
+                return;
+            }
+            silenceMs += ms;
+            if (silenceMs < endOfTurnSilenceMs) {
+                return;
+            }
+            conn.send(turn(true, false));
+            String formatted = turn(true, true);
+            formatScheduler.schedule(() -> {
+                if (conn.isOpen()) {
+                    conn.send(formatted);
+                }
+            }, formatDelayMs, TimeUnit.MILLISECONDS);
+            turnOrder++;
+            speechMs = 0;
+            silenceMs = 0;
+            lastPartialMs = 0;
+            turns.incrementAndGet();
+        }
+
+        private String turn(boolean endOfTurn, boolean formatted) {
+            int wordCount = Math.max(1, Math.min(WORDS.length, speechMs / MS_PER_WORD));
+            StringBuilder transcript = new StringBuilder();
+            StringBuilder words = new StringBuilder();
+            for (int i = 0; i < wordCount; i++) {
+                if (i > 0) {
+                    transcript.append(' ');
+                    words.append(',');
+                }
+                transcript.append(WORDS[i]);
+                words.append("{\"start\":").append(i * MS_PER_WORD).append(",\"end\":").append((i + 1) * MS_PER_WORD)
+                        .append(",\"text\":\"").append(WORDS[i]).append("\",\"confidence\":0.97,\"word_is_final\":true}");
+            }
+            String text = formatted
+                    ? Character.toUpperCase(transcript.charAt(0)) + transcript.substring(1) + "."
+                    : transcript.toString();
+            return "{\"type\":\"Turn\",\"turn_order\":" + turnOrder + ",\"turn_is_formatted\":" + formatted
+                    + ",\"end_of_turn\":" + endOfTurn + ",\"transcript\":\"" + text
+                    + "\",\"end_of_turn_confidence\":" + (endOfTurn ? 0.9 : 0.1) + ",\"words\":[" + words + "]}";
+        }
+    }
+}
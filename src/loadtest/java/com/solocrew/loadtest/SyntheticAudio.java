@@ -0,0 +1,71 @@
+package com.solocrew.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 16 kHz 16-bit mono PCM the callers send: a speech-level tone for utterances and digital
+ * silence in between. The stand-in streaming server only looks at the signal energy, so a tone
+ * is enough to open and close turns.
+ */
+final class SyntheticAudio {
+
+    static final int SAMPLE_RATE = 16000;
+    static final int FRAME_MS = 20;
+    static final int FRAME_BYTES = SAMPLE_RATE / 1000 * FRAME_MS * 2;
+
+    private SyntheticAudio() {
+    }
+
+    static ByteBuffer toneFrame() {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < FRAME_BYTES / 2; i++) {
+            // 400 Hz divides the 20 ms frame evenly, so repeated frames join without a click
+            frame.putShort((short) (8000 * Math.sin(2 * Math.PI * 400 * i / SAMPLE_RATE)));
+        }
+        return frame.flip().asReadOnlyBuffer();
+    }
+
+    static ByteBuffer silenceFrame() {
+        return ByteBuffer.allocate(FRAME_BYTES).asReadOnlyBuffer();
+    }
+
+    /** A WAV file with {@code speechMs} of tone followed by {@code silenceMs} of silence. */
+    static byte[] wav(int speechMs, int silenceMs) {
+        ByteBuffer tone = toneFrame();
+        ByteBuffer silence = silenceFrame();
+        int frames = (speechMs + silenceMs) / FRAME_MS;
+        int dataBytes = frames * FRAME_BYTES;
+
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes()).putInt(36 + dataBytes).put("WAVE".getBytes());
+        header.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * 2).putShort((short) 2).putShort((short) 16);
+        header.put("data".getBytes()).putInt(dataBytes);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(44 + dataBytes);
+        out.write(header.array(), 0, 44);
+        byte[] frame = new byte[FRAME_BYTES];
+        for (int i = 0; i < frames; i++) {
+            (i * FRAME_MS < speechMs ? tone : silence).duplicate().get(frame);
+            out.write(frame, 0, FRAME_BYTES);
+        }
+        return out.toByteArray();
+    }
+
+    /** RMS of a little-endian 16-bit PCM buffer, on the 0..32768 sample scale. */
+    static double rms(ByteBuffer pcm) {
+        ByteBuffer samples = pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int count = samples.remaining() / 2;
+        if (count == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            double sample = samples.getShort();
+            sum += sample * sample;
+        }
+        return Math.sqrt(sum / count);
+    }
+}
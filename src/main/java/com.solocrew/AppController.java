@@ -1,45 +1,151 @@
 package com.solocrew;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api")
 public class AppController {
 
+    private static final Duration TTS_STREAM_TIMEOUT = Duration.ofMinutes(1);
+    private static final MediaType AUDIO_MPEG = MediaType.parseMediaType("audio/mpeg");
+    private static final Duration MAX_JOB_WAIT = Duration.ofSeconds(60);
+
     @Autowired
     AppService service;
 
+    @Autowired
+    AssemblyAIService assemblyAIService;
+
+    @Autowired
+    AudioJobService audioJobService;
+
     @PostMapping("/audio")
-    public ResponseEntity<String> processAudio(@RequestParam("file") MultipartFile audioFile, 
-                                             @RequestParam("uuid") String conversationUuid) {
+    public Mono<ResponseEntity<String>> processAudio(@RequestParam("file") MultipartFile audioFile, 
+                                                   @RequestParam("uuid") String conversationUuid) {
+        return service.processAudioFile(audioFile, conversationUuid)
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body("Error processing audio file: " + e.getMessage())));
+    }
+
+    /**
+     * Queues the upload as a background job and returns its id at once; see {@link AudioJobService}.
+     */
+    @PostMapping("/audio/jobs")
+    public ResponseEntity<Map<String, Object>> submitAudioJob(@RequestParam("file") MultipartFile audioFile,
+                                                              @RequestParam("uuid") String conversationUuid) {
         try {
-            String result = service.processAudioFile(audioFile, conversationUuid);
-            return ResponseEntity.ok(result);
+            AudioJobService.AudioJob job = audioJobService.submit(audioFile, conversationUuid);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/audio/jobs/" + job.getId()))
+                    .body(audioJobService.describe(job));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error processing audio file: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", "Error processing audio file: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Job state. With {@code waitMs} this long-polls: it answers as soon as the job finishes, or
+     * with the current state once the wait is over.
+     */
+    @GetMapping("/audio/jobs/{id}")
+    public Mono<ResponseEntity<Map<String, Object>>> audioJob(@PathVariable("id") String jobId,
+                                                              @RequestParam(value = "waitMs", defaultValue = "0") long waitMs) {
+        AudioJobService.AudioJob job = audioJobService.get(jobId);
+        if (job == null) {
+            return Mono.just(ResponseEntity.notFound().build());
         }
+        Duration wait = Duration.ofMillis(Math.max(0, Math.min(waitMs, MAX_JOB_WAIT.toMillis())));
+        return audioJobService.awaitCompletion(job, wait).map(ResponseEntity::ok);
     }
 
+    /**
+     * Server-sent events with the job's state, one per change, ending when the job finishes.
+     */
+    @GetMapping(value = "/audio/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Object>>> audioJobEvents(@PathVariable("id") String jobId) {
+        AudioJobService.AudioJob job = audioJobService.get(jobId);
+        if (job == null) {
+            return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
+        }
+        return audioJobService.watch(job)
+                .map(state -> ServerSentEvent.builder(state).event("status").build());
+    }
+
+    /**
+     * Streams the speech through as it is synthesised. Chunks are written from a bounded elastic
+     * worker as they arrive, so no request thread waits for the whole stream and the Netty event
+     * loop never does a blocking servlet write.
+     */
     @GetMapping("/text-to-speech")
-    public ResponseEntity<byte[]> textToSpeech(@RequestParam("text") String text) {
-        try {
-            byte[] audioData = service.convertTextToSpeech(text);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
-            headers.setContentDispositionFormData("attachment", "speech.mp3");
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(audioData);
-        } catch (Exception e) {
+    public Mono<ResponseEntity<ResponseBodyEmitter>> textToSpeech(@RequestParam("text") String text) {
+        return service.convertTextToSpeech(text)
+                .map(audio -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.setContentType(AUDIO_MPEG);
+                    headers.setContentDispositionFormData("attachment", "speech.mp3");
+
+                    // Chunked: each upstream chunk is written and flushed as soon as it arrives
+                    ResponseBodyEmitter body = new ResponseBodyEmitter(TTS_STREAM_TIMEOUT.toMillis());
+                    Disposable subscription = audio
+                            .publishOn(Schedulers.boundedElastic())
+                            .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                            .subscribe(buffer -> {
+                                byte[] chunk = new byte[buffer.readableByteCount()];
+                                buffer.read(chunk);
+                                DataBufferUtils.release(buffer);
+                                try {
+                                    body.send(chunk, AUDIO_MPEG);
+                                } catch (IOException e) {
+                                    // The client went away; cancels the upstream stream
+                                    throw new UncheckedIOException(e);
+                                }
+                            }, body::completeWithError, body::complete);
+                    body.onTimeout(subscription::dispose);
+                    body.onError(error -> subscription.dispose());
+
+                    return ResponseEntity.ok()
+                            .headers(headers)
+                            .body(body);
+                })
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    /**
+     * AssemblyAI transcript webhook; see {@link AssemblyAIService#handleWebhook}.
+     */
+    @PostMapping("/assemblyai/webhook")
+    public ResponseEntity<Void> assemblyAIWebhook(@RequestHeader(value = AssemblyAIService.WEBHOOK_SECRET_HEADER, required = false) String secret,
+                                                  @RequestBody Map<String, Object> payload) {
+        Object transcriptId = payload.get("transcript_id");
+        if (transcriptId == null) {
             return ResponseEntity.badRequest().build();
         }
+        boolean accepted = assemblyAIService.handleWebhook(secret, transcriptId.toString(), String.valueOf(payload.get("status")));
+        return accepted ? ResponseEntity.ok().build() : ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
 
 }
@@ -1,14 +1,23 @@
 package com.solocrew;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class AppService {
 
+    private static final Logger log = LoggerFactory.getLogger(AppService.class);
+    private static final Logger payloadLog = LoggerFactory.getLogger("com.solocrew.payload.rest");
+
     @Autowired
     private AssemblyAIService assemblyAIService;
 
@@ -18,10 +27,31 @@ public class AppService {
     @Autowired
     private OpenAIChatService openAIChatService;
 
-    // Store conversations in memory (in production, use a database)
-    private final ConcurrentHashMap<String, ConversationSession> conversations = new ConcurrentHashMap<>();
+    @Autowired
+    private ContextWindowManager contextWindowManager;
+
+    @Autowired
+    private ConversationStore conversationStore;
+
+    @Autowired
+    private TurnProcessingExecutor turnProcessingExecutor;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
 
-    public String processAudioFile(MultipartFile audioFile, String conversationUuid) throws Exception {
+    public Mono<String> processAudioFile(MultipartFile audioFile, String conversationUuid) {
+        try {
+            validateAudioFile(audioFile);
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+        return processAudio(audioFile.getResource(), audioFile.getOriginalFilename(), conversationUuid);
+    }
+
+    /**
+     * Rejects a missing or non-audio upload, logging what was received otherwise.
+     */
+    public void validateAudioFile(MultipartFile audioFile) throws Exception {
         if (audioFile == null || audioFile.isEmpty()) {
             throw new Exception("No audio file provided");
         }
@@ -30,39 +60,64 @@ public class AppService {
             throw new Exception("Invalid audio file format");
         }
 
-        System.out.println("Valid audio file received:");
-        System.out.println("- Filename: " + audioFile.getOriginalFilename());
-        System.out.println("- Size: " + audioFile.getSize() + " bytes");
-        System.out.println("- Content Type: " + audioFile.getContentType());
+        log.debug("Valid audio file received: {} ({} bytes, {})",
+                audioFile.getOriginalFilename(), audioFile.getSize(), audioFile.getContentType());
+    }
 
-        try {
-            System.out.println("Starting transcription with AssemblyAI...");
-            String transcription = assemblyAIService.transcribeAudio(audioFile);
-            System.out.println("Transcription completed: " + transcription);
-            
-            // Get or create conversation session
-            ConversationSession session = conversations.computeIfAbsent(conversationUuid, ConversationSession::new);
-            
-            // Add user message to conversation
-            session.addMessage(new ConversationMessage("user", transcription));
-            
-            // Generate empathy response using OpenAI
-            OpenAIChatService.EmpathyResponse empathyResponse = openAIChatService.generateEmpathyResponse(session.getMessages());
-            
-            // Add assistant response to conversation
-            session.addMessage(new ConversationMessage("assistant", empathyResponse.getReply()));
-            
-            // Check if response indicates distress and update counter
-            boolean needsHumanIntervention = empathyResponse.isHumanInterventionNeeded() || session.needsHumanIntervention();
-            
-            return "{\"status\": \"success\", \"message\": \"Audio transcribed successfully\", \"filename\": \"" + 
-                   audioFile.getOriginalFilename() + "\", \"transcription\": \"" + 
-                   transcription.replace("\"", "\\\"") + "\", \"needHumanIntervention\": " + needsHumanIntervention + 
-                   ", \"transcriptionReply\": \"" + empathyResponse.getReply().replace("\"", "\\\"") + "\"}";
-        } catch (Exception e) {
-            System.err.println("Transcription failed: " + e.getMessage());
-            throw new Exception("Failed to transcribe audio: " + e.getMessage());
-        }
+    /**
+     * Transcribes already validated audio and runs the conversation turn. The resource must stay
+     * readable until the returned Mono completes.
+     */
+    public Mono<String> processAudio(Resource audio, String filename, String conversationUuid) {
+        return Mono.defer(() -> {
+                    long startedNanos = System.nanoTime();
+                    return transcribeAndReply(audio, filename, conversationUuid)
+                            .doOnSuccess(result -> recordTurn("success", startedNanos))
+                            .doOnError(e -> recordTurn(e instanceof RejectedExecutionException ? "rejected" : PipelineMetrics.outcome(e), startedNanos))
+                            .doOnCancel(() -> recordTurn("cancelled", startedNanos));
+                })
+                .onErrorMap(e -> {
+                    log.atWarn().addKeyValue("conversation", conversationUuid).log("Transcription failed: {}", e.getMessage());
+                    return new Exception("Failed to transcribe audio: " + e.getMessage());
+                });
+    }
+
+    private void recordTurn(String outcome, long startedNanos) {
+        pipelineMetrics.recordTurn("rest", outcome, System.nanoTime() - startedNanos);
+    }
+
+    private Mono<String> transcribeAndReply(Resource audio, String filename, String conversationUuid) {
+        log.atDebug().addKeyValue("conversation", conversationUuid).log("Starting transcription with AssemblyAI");
+        return assemblyAIService.transcribeAudioAsync(audio)
+                .flatMap(transcription -> {
+                    payloadLog.atDebug().addKeyValue("conversation", conversationUuid).log("Transcription: {}", transcription);
+
+                    // Transcription runs in parallel; the turn itself waits behind any other turn
+                    // for this conversation, from this endpoint or the WebSocket
+                    return Mono.fromFuture(turnProcessingExecutor.submitAsync(conversationUuid,
+                            () -> processTurn(conversationUuid, transcription).toFuture()))
+                            .map(empathyResponse -> {
+                                ConversationSession session = conversationStore.getOrCreate(conversationUuid);
+                                // Check if response indicates distress and update counter
+                                boolean needsHumanIntervention = empathyResponse.isHumanInterventionNeeded() || session.needsHumanIntervention();
+
+                                return "{\"status\": \"success\", \"message\": \"Audio transcribed successfully\", \"filename\": \"" + 
+                                       filename + "\", \"transcription\": \"" + 
+                                       transcription.replace("\"", "\\\"") + "\", \"needHumanIntervention\": " + needsHumanIntervention + 
+                                       ", \"transcriptionReply\": \"" + empathyResponse.getReply().replace("\"", "\\\"") + "\"}";
+                            });
+                });
+    }
+
+    private Mono<OpenAIChatService.EmpathyResponse> processTurn(String conversationUuid, String transcription) {
+        ConversationSession session = conversationStore.getOrCreate(conversationUuid);
+        session.addMessage(new ConversationMessage("user", transcription));
+
+        return openAIChatService.generateEmpathyResponseAsync(contextWindowManager.buildContext(session))
+                .doOnNext(empathyResponse -> {
+                    session.addMessage(new ConversationMessage("assistant", empathyResponse.getReply()));
+                    contextWindowManager.compactIfNeeded(session);
+                });
     }
 
     private boolean isValidAudioFile(MultipartFile file) {
@@ -90,24 +145,25 @@ public class AppService {
                lowerFilename.endsWith(".aac");
     }
 
-    public byte[] convertTextToSpeech(String text) throws Exception {
+    /**
+     * Validates the text and starts streaming its speech. See {@link OpenAITTSService#streamSpeech}.
+     */
+    public Mono<Flux<DataBuffer>> convertTextToSpeech(String text) {
         if (text == null || text.trim().isEmpty()) {
-            throw new Exception("No text provided for conversion");
+            return Mono.error(new Exception("No text provided for conversion"));
         }
 
         if (text.length() > 4096) {
-            throw new Exception("Text too long. Maximum 4096 characters allowed.");
+            return Mono.error(new Exception("Text too long. Maximum 4096 characters allowed."));
         }
 
-        System.out.println("Converting text to speech: " + text.substring(0, Math.min(text.length(), 100)) + "...");
+        log.debug("Converting {} characters to speech", text.length());
 
-        try {
-            byte[] audioData = openAITTSService.generateSpeech(text);
-            System.out.println("Text-to-speech conversion completed successfully");
-            return audioData;
-        } catch (Exception e) {
-            System.err.println("Text-to-speech conversion failed: " + e.getMessage());
-            throw new Exception("Failed to convert text to speech: " + e.getMessage());
-        }
+        return openAITTSService.streamSpeech(text)
+                .map(audio -> audio.doOnComplete(() -> log.debug("Text-to-speech conversion completed")))
+                .onErrorMap(e -> {
+                    log.warn("Text-to-speech conversion failed: {}", e.getMessage());
+                    return new Exception("Failed to convert text to speech: " + e.getMessage());
+                });
     }
 }
@@ -1,9 +1,22 @@
 package com.solocrew;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
@@ -12,124 +25,381 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
-public class AssemblyAIService {
+public class AssemblyAIService implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(AssemblyAIService.class);
+    private static final Logger payloadLog = LoggerFactory.getLogger("com.solocrew.payload.transcription");
 
     @Value("${assemblyai.api.key}")
     private String apiKey;
 
-    private final WebClient webClient;
-    private final ObjectMapper objectMapper;
+    @Value("${assemblyai.api.base-url:https://api.assemblyai.com}")
+    private String baseUrl;
+
+    @Value("${assemblyai.webhook.base-url:}")
+    private String webhookBaseUrl;
+
+    @Value("${assemblyai.webhook.secret:}")
+    private String webhookSecret;
+
+    @Value("${assemblyai.transcript.poll.initial-delay-ms:500}")
+    private long pollInitialDelayMs;
+
+    @Value("${assemblyai.transcript.poll.max-delay-ms:5000}")
+    private long pollMaxDelayMs;
+
+    @Value("${assemblyai.transcript.poll.backoff-multiplier:1.5}")
+    private double pollBackoffMultiplier;
+
+    @Value("${assemblyai.transcript.poll.webhook-fallback-delay-ms:15000}")
+    private long webhookFallbackDelayMs;
+
+    @Value("${assemblyai.transcript.timeout-ms:120000}")
+    private long transcriptTimeoutMs;
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
 
-    private static final String ASSEMBLYAI_UPLOAD_URL = "https://api.assemblyai.com/v2/upload";
-    private static final String ASSEMBLYAI_TRANSCRIPT_URL = "https://api.assemblyai.com/v2/transcript";
+    @Autowired
+    private ObjectMapper objectMapper;
 
-    public AssemblyAIService() {
-        this.webClient = WebClient.builder()
+    private WebClient webClient;
+
+    private static final int UPLOAD_CHUNK_BYTES = 16 * 1024;
+
+    public static final String WEBHOOK_PATH = "/api/assemblyai/webhook";
+    public static final String WEBHOOK_SECRET_HEADER = "X-Webhook-Secret";
+
+    // Transcripts still being processed upstream, completed by a webhook or by the poller
+    private final ConcurrentHashMap<String, PendingTranscript> pendingTranscripts = new ConcurrentHashMap<>();
+    // Webhooks that beat the transcript request's response here, kept briefly until it is registered
+    private final ConcurrentHashMap<String, Long> earlyWebhooks = new ConcurrentHashMap<>();
+    private ScheduledExecutorService pollScheduler;
+
+    private static final long EARLY_WEBHOOK_RETENTION_MS = 60_000;
+
+    private final AtomicLong statusPolls = new AtomicLong();
+    private final AtomicLong webhooksReceived = new AtomicLong();
+    private final AtomicLong completedViaWebhook = new AtomicLong();
+    private final AtomicLong completedViaPolling = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        webClient = webClientBuilder
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .build();
-        this.objectMapper = new ObjectMapper();
+        // A single timer thread is enough: it only fires off non-blocking status requests
+        pollScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "assemblyai-transcript-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pollScheduler.shutdownNow();
+    }
+
+    private boolean isWebhookEnabled() {
+        return webhookBaseUrl != null && !webhookBaseUrl.isBlank();
     }
 
     public String transcribeAudio(MultipartFile audioFile) throws Exception {
-        String audioUrl = uploadAudioFile(audioFile);
-        
-        String transcriptId = requestTranscription(audioUrl);
-        
-        return pollForTranscription(transcriptId);
+        return ReactiveSupport.block(transcribeAudioAsync(audioFile));
     }
 
-    private String uploadAudioFile(MultipartFile audioFile) throws Exception {
-        try {
-            ByteArrayResource resource = new ByteArrayResource(audioFile.getBytes()) {
-                @Override
-                public String getFilename() {
-                    return audioFile.getOriginalFilename();
-                }
-            };
-
-            String response = webClient.post()
-                    .uri(ASSEMBLYAI_UPLOAD_URL)
-                    .header("authorization", apiKey)
-                    .body(BodyInserters.fromResource(resource))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block(Duration.ofMinutes(2));
-
-            JsonNode jsonResponse = objectMapper.readTree(response);
-            System.out.println("Response from AssemplyAI "+jsonResponse);
-            return jsonResponse.get("upload_url").asText();
-        } catch (Exception e) {
-            throw new Exception("Failed to upload audio file to AssemblyAI: " + e.getMessage());
-        }
-    }
-
-    private String requestTranscription(String audioUrl) throws Exception {
-        try {
-            String requestBody = objectMapper.writeValueAsString(new TranscriptRequest(audioUrl));
+    public Mono<String> transcribeAudioAsync(MultipartFile audioFile) {
+        return transcribeAudioAsync(audioFile.getResource());
+    }
 
-            String response = webClient.post()
-                    .uri(ASSEMBLYAI_TRANSCRIPT_URL)
-                    .header("authorization", apiKey)
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block(Duration.ofSeconds(30));
+    /**
+     * Non-blocking variant of {@link #transcribeAudio}: upload, transcript request and completion
+     * are chained without holding a thread. See {@link #awaitTranscription} for how completion is
+     * detected.
+     */
+    public Mono<String> transcribeAudioAsync(Resource audio) {
+        return uploadAudioFile(audio)
+                .flatMap(this::requestTranscription)
+                .flatMap(this::awaitTranscription);
+    }
 
-            JsonNode jsonResponse = objectMapper.readTree(response);
-            return jsonResponse.get("id").asText();
-        } catch (Exception e) {
-            throw new Exception("Failed to request transcription: " + e.getMessage());
+    /**
+     * Streams the audio to AssemblyAI in {@value #UPLOAD_CHUNK_BYTES}-byte chunks, read as the
+     * connection is ready to send them: through an asynchronous file channel when the resource is
+     * a file (a job's temp copy), otherwise from its InputStream (a multipart part), whose blocking
+     * reads are moved off the event loop. Only a few chunks are in memory at once, however large
+     * the file.
+     */
+    private Mono<String> uploadAudioFile(Resource audio) {
+        Flux<DataBuffer> body = DataBufferUtils.read(audio, DefaultDataBufferFactory.sharedInstance, UPLOAD_CHUNK_BYTES);
+        if (!audio.isFile()) {
+            body = body.subscribeOn(Schedulers.boundedElastic());
         }
+        return webClient.post()
+                .uri(baseUrl + "/v2/upload")
+                .header("authorization", apiKey)
+                .headers(headers -> {
+                    headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+                    long length = contentLength(audio);
+                    if (length >= 0) {
+                        headers.setContentLength(length);
+                    }
+                })
+                .body(BodyInserters.fromDataBuffers(body))
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofMinutes(2))
+                .map(response -> {
+                    JsonNode jsonResponse = readTree(response);
+                    payloadLog.debug("Upload response from AssemblyAI: {}", jsonResponse);
+                    return jsonResponse.get("upload_url").asText();
+                })
+                .onErrorMap(e -> new Exception("Failed to upload audio file to AssemblyAI: " + e.getMessage()));
     }
 
-    private String pollForTranscription(String transcriptId) throws Exception {
-        int maxAttempts = 60;
-        int attemptCount = 0;
+    private static long contentLength(Resource audio) {
+        try {
+            return audio.contentLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
 
-        while (attemptCount < maxAttempts) {
-            try {
-                String response = webClient.get()
-                        .uri(ASSEMBLYAI_TRANSCRIPT_URL + "/" + transcriptId)
+    private Mono<String> requestTranscription(String audioUrl) {
+        return Mono.fromCallable(() -> {
+                    TranscriptRequest request = new TranscriptRequest(audioUrl);
+                    if (isWebhookEnabled()) {
+                        request.webhook_url = webhookBaseUrl + WEBHOOK_PATH;
+                        if (!webhookSecret.isBlank()) {
+                            request.webhook_auth_header_name = WEBHOOK_SECRET_HEADER;
+                            request.webhook_auth_header_value = webhookSecret;
+                        }
+                    }
+                    return objectMapper.writeValueAsString(request);
+                })
+                .flatMap(requestBody -> webClient.post()
+                        .uri(baseUrl + "/v2/transcript")
                         .header("authorization", apiKey)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .bodyValue(requestBody)
                         .retrieve()
-                        .bodyToMono(String.class)
-                        .block(Duration.ofSeconds(30));
-
-                JsonNode jsonResponse = objectMapper.readTree(response);
-                String status = jsonResponse.get("status").asText();
-
-                System.out.println("Transcription status: " + status);
-
-                if ("completed".equals(status)) {
-                    String text = jsonResponse.get("text").asText();
-                    System.out.println("Transcription completed successfully");
-                    return text;
-                } else if ("error".equals(status)) {
-                    String error = jsonResponse.get("error").asText();
-                    throw new Exception("Transcription failed: " + error);
-                }
-
-                Thread.sleep(2000);
-                attemptCount++;
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new Exception("Transcription polling interrupted");
-            } catch (Exception e) {
-                throw new Exception("Failed to poll transcription status: " + e.getMessage());
+                        .bodyToMono(String.class))
+                .timeout(Duration.ofSeconds(30))
+                .map(response -> readTree(response).get("id").asText())
+                .onErrorMap(e -> new Exception("Failed to request transcription: " + e.getMessage()));
+    }
+
+    /**
+     * Waits for a transcript to finish. With {@code assemblyai.webhook.base-url} set, AssemblyAI
+     * calls {@link #handleWebhook} as soon as it is done and polling only runs as a slow safety
+     * net. Otherwise the transcript is polled with exponential backoff, starting quickly so short
+     * clips are not held up. All outstanding transcripts share one timer thread, and no thread
+     * waits between polls.
+     */
+    private Mono<String> awaitTranscription(String transcriptId) {
+        return Mono.defer(() -> {
+            PendingTranscript pending = new PendingTranscript(transcriptId,
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(transcriptTimeoutMs),
+                    isWebhookEnabled() ? webhookFallbackDelayMs : pollInitialDelayMs);
+            pendingTranscripts.put(transcriptId, pending);
+            if (earlyWebhooks.remove(transcriptId) != null) {
+                pending.viaWebhook = true;
+                schedulePoll(pending, 0);
+            } else {
+                schedulePoll(pending, pending.nextDelayMs);
+            }
+            return pending.result.asMono()
+                    .doFinally(signal -> {
+                        pending.done = true;
+                        pendingTranscripts.remove(transcriptId, pending);
+                        pending.cancelScheduledPoll();
+                    });
+        });
+    }
+
+    /**
+     * Called for each AssemblyAI webhook delivery. The payload only carries the id and status, so
+     * a finished transcript is fetched straight away. A short clip can finish before the
+     * transcript request's response has been handled; that webhook is held until the transcript is
+     * registered, so it is not left to the slow fallback poll.
+     */
+    public boolean handleWebhook(String secret, String transcriptId, String status) {
+        if (!webhookSecret.isBlank() && !secretMatches(secret)) {
+            return false;
+        }
+        webhooksReceived.incrementAndGet();
+        if (!"completed".equals(status) && !"error".equals(status)) {
+            return true;
+        }
+        PendingTranscript pending = pendingTranscripts.get(transcriptId);
+        if (pending == null) {
+            Long received = System.nanoTime();
+            earlyWebhooks.put(transcriptId, received);
+            pollScheduler.schedule(() -> earlyWebhooks.remove(transcriptId, received),
+                    EARLY_WEBHOOK_RETENTION_MS, TimeUnit.MILLISECONDS);
+            // Registered in the meantime: whichever side removes the entry starts the fetch
+            pending = pendingTranscripts.get(transcriptId);
+            if (pending == null || !earlyWebhooks.remove(transcriptId, received)) {
+                return true;
+            }
+        }
+        pending.viaWebhook = true;
+        schedulePoll(pending, 0);
+        return true;
+    }
+
+    // Constant-time, so response timing does not reveal how much of a guess was right
+    private boolean secretMatches(String secret) {
+        return secret != null && MessageDigest.isEqual(
+                webhookSecret.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void schedulePoll(PendingTranscript pending, long delayMs) {
+        synchronized (pending) {
+            if (pending.isDone()) {
+                return;
             }
+            pending.cancelScheduledPoll();
+            pending.scheduledPoll = pollScheduler.schedule(() -> poll(pending), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void poll(PendingTranscript pending) {
+        if (pending.isDone()) {
+            return;
+        }
+        if (System.nanoTime() > pending.deadlineNanos) {
+            timeouts.incrementAndGet();
+            pending.fail(new TimeoutException("Transcription timed out after " + (transcriptTimeoutMs / 1000) + " seconds"));
+            return;
+        }
+
+        statusPolls.incrementAndGet();
+        webClient.get()
+                .uri(baseUrl + "/v2/transcript/{id}", pending.transcriptId)
+                .header("authorization", apiKey)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofSeconds(30))
+                .subscribe(response -> handleStatus(pending, readTree(response)), error -> {
+                    // Transient failures just push the next attempt back; the deadline still applies
+                    log.warn("Failed to poll transcription status: {}", error.getMessage());
+                    schedulePoll(pending, pending.backOff(pollBackoffMultiplier, pollMaxDelayMs));
+                });
+    }
+
+    private void handleStatus(PendingTranscript pending, JsonNode jsonResponse) {
+        String status = jsonResponse.get("status").asText();
+        log.debug("Transcription status: {}", status);
+
+        if ("completed".equals(status)) {
+            (pending.viaWebhook ? completedViaWebhook : completedViaPolling).incrementAndGet();
+            log.debug("Transcription completed");
+            pending.complete(jsonResponse.get("text").asText());
+        } else if ("error".equals(status)) {
+            pending.fail(new Exception("Transcription failed: " + jsonResponse.get("error").asText()));
+        } else {
+            long delay = isWebhookEnabled() ? webhookFallbackDelayMs : pending.backOff(pollBackoffMultiplier, pollMaxDelayMs);
+            schedulePoll(pending, delay);
         }
+    }
+
+    /**
+     * Batch transcription meters under {@code voice.stt.batch.*}: transcripts outstanding, status
+     * polls, webhooks received, and completions (via = webhook | polling | timeout).
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("voice.stt.batch.outstanding", pendingTranscripts, Map::size).register(registry);
+        FunctionCounter.builder("voice.stt.batch.polls", statusPolls, AtomicLong::get).register(registry);
+        FunctionCounter.builder("voice.stt.batch.webhooks", webhooksReceived, AtomicLong::get).register(registry);
+        completionCounter(registry, "webhook", completedViaWebhook);
+        completionCounter(registry, "polling", completedViaPolling);
+        completionCounter(registry, "timeout", timeouts);
+    }
+
+    private static void completionCounter(MeterRegistry registry, String via, AtomicLong count) {
+        FunctionCounter.builder("voice.stt.batch.completions", count, AtomicLong::get)
+                .tag("via", via)
+                .register(registry);
+    }
 
-        throw new Exception("Transcription timed out after " + (maxAttempts * 2) + " seconds");
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid JSON from AssemblyAI: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class PendingTranscript {
+        final String transcriptId;
+        final long deadlineNanos;
+        final Sinks.One<String> result = Sinks.one();
+        long nextDelayMs;
+        volatile boolean viaWebhook;
+        volatile boolean done;
+        ScheduledFuture<?> scheduledPoll;
+
+        PendingTranscript(String transcriptId, long deadlineNanos, long initialDelayMs) {
+            this.transcriptId = transcriptId;
+            this.deadlineNanos = deadlineNanos;
+            this.nextDelayMs = initialDelayMs;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        void complete(String text) {
+            done = true;
+            result.tryEmitValue(text);
+        }
+
+        void fail(Throwable error) {
+            done = true;
+            result.tryEmitError(error);
+        }
+
+        synchronized long backOff(double multiplier, long maxDelayMs) {
+            nextDelayMs = Math.min((long) (nextDelayMs * multiplier), maxDelayMs);
+            return nextDelayMs;
+        }
+
+        synchronized void cancelScheduledPoll() {
+            if (scheduledPoll != null) {
+                scheduledPoll.cancel(false);
+            }
+        }
     }
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private static class TranscriptRequest {
         public String audio_url;
+        public String webhook_url;
+        public String webhook_auth_header_name;
+        public String webhook_auth_header_value;
 
         public TranscriptRequest(String audioUrl) {
             this.audio_url = audioUrl;
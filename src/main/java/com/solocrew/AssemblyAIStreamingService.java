@@ -2,6 +2,9 @@ package com.solocrew;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.handshake.ServerHandshake;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,16 +23,20 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class AssemblyAIStreamingService {
 
+    private static final Logger log = LoggerFactory.getLogger(AssemblyAIStreamingService.class);
+    private static final Logger payloadLog = LoggerFactory.getLogger("com.solocrew.payload.upstream");
+
     @Value("${assemblyai.api.key}")
     private String apiKey;
 
-    private final ObjectMapper objectMapper;
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private final ConcurrentHashMap<String, StreamingSession> activeSessions;
 
     private static final String ASSEMBLYAI_STREAMING_URL = "wss://streaming.assemblyai.com/v3/ws";
 
     public AssemblyAIStreamingService() {
-        this.objectMapper = new ObjectMapper();
         this.activeSessions = new ConcurrentHashMap<>();
     }
 
@@ -38,10 +45,7 @@ public class AssemblyAIStreamingService {
         
         try {
             String connectionUrl = ASSEMBLYAI_STREAMING_URL + "?sample_rate=16000&format_turns=true";
-            System.out.println("=== ASSEMBLYAI CONNECTION ATTEMPT ===");
-            System.out.println("URL: " + connectionUrl);
-            System.out.println("API Key length: " + apiKey.length());
-            System.out.println("=====================================");
+            log.atDebug().addKeyValue("session", sessionId).log("Connecting to AssemblyAI at {}", connectionUrl);
             
             URI serverUri = new URI(connectionUrl);
             
@@ -52,19 +56,17 @@ public class AssemblyAIStreamingService {
             WebSocketClient client = new WebSocketClient(serverUri, headers) {
                 @Override
                 public void onOpen(ServerHandshake handshake) {
-                    System.out.println("=== ASSEMBLYAI CONNECTION OPENED ===");
-                    System.out.println("Session: " + sessionId);
-                    System.out.println("Handshake: " + handshake.getHttpStatus() + " " + handshake.getHttpStatusMessage());
-                    System.out.println("===================================");
+                    log.atDebug().addKeyValue("session", sessionId)
+                            .log("AssemblyAI connection opened: {} {}", handshake.getHttpStatus(), handshake.getHttpStatusMessage());
                     
                     try {
                         StreamingSession session = new StreamingSession(sessionId, this, callback);
                         activeSessions.put(sessionId, session);
                         future.complete(session);
-                        System.out.println("AssemblyAI session created successfully for: " + sessionId);
+                        log.atInfo().addKeyValue("session", sessionId).log("AssemblyAI session created");
                         
                     } catch (Exception e) {
-                        System.err.println("Error creating AssemblyAI session: " + e.getMessage());
+                        log.atWarn().addKeyValue("session", sessionId).setCause(e).log("Error creating AssemblyAI session");
                         future.completeExceptionally(e);
                     }
                 }
@@ -72,10 +74,7 @@ public class AssemblyAIStreamingService {
                 @Override
                 public void onMessage(String message) {
                     try {
-                        System.out.println("=== ASSEMBLYAI RAW RESPONSE ===");
-                        System.out.println("Session: " + sessionId);
-                        System.out.println("Raw JSON: " + message);
-                        System.out.println("===============================");
+                        payloadLog.atDebug().addKeyValue("session", sessionId).log("AssemblyAI message: {}", message);
                         
                         JsonNode jsonMessage = objectMapper.readTree(message);
                         
@@ -84,53 +83,41 @@ public class AssemblyAIStreamingService {
                             
                             if ("Begin".equals(messageType)) {
                                 String sessionId = jsonMessage.has("id") ? jsonMessage.get("id").asText() : "unknown";
-                                System.out.println("=== ASSEMBLYAI SESSION STARTED ===");
-                                System.out.println("Session ID: " + sessionId);
-                                System.out.println("Message: " + jsonMessage);
-                                System.out.println("=================================");
+                                log.atDebug().addKeyValue("session", sessionId).log("AssemblyAI session started");
                             } else if ("Turn".equals(messageType)) {
                                 String transcript = jsonMessage.has("transcript") ? jsonMessage.get("transcript").asText() : "";
                                 boolean isFormatted = jsonMessage.has("turn_is_formatted") ? jsonMessage.get("turn_is_formatted").asBoolean() : false;
                                 
                                 if (!transcript.trim().isEmpty()) {
                                     if (isFormatted) {
-                                        System.out.println("=== FINAL TRANSCRIPT ===");
-                                        System.out.println("Text: " + transcript);
-                                        System.out.println("Formatted: " + isFormatted);
-                                        System.out.println("====================");
+                                        payloadLog.atDebug().addKeyValue("session", sessionId).log("Final transcript: {}", transcript);
                                         callback.onTranscript(transcript, true);
                                     } else {
-                                        System.out.println("=== PARTIAL TRANSCRIPT ===");
-                                        System.out.println("Text: " + transcript);
-                                        System.out.println("========================");
                                         // Don't send partial transcripts to callback
                                     }
                                 }
                             } else if ("Termination".equals(messageType)) {
                                 double audioDuration = jsonMessage.has("audio_duration_seconds") ? jsonMessage.get("audio_duration_seconds").asDouble() : 0.0;
                                 double sessionDuration = jsonMessage.has("session_duration_seconds") ? jsonMessage.get("session_duration_seconds").asDouble() : 0.0;
-                                System.out.println("=== ASSEMBLYAI SESSION TERMINATED ===");
-                                System.out.println("Audio Duration: " + audioDuration + "s");
-                                System.out.println("Session Duration: " + sessionDuration + "s");
-                                System.out.println("====================================");
+                                log.atDebug().addKeyValue("session", sessionId)
+                                        .log("AssemblyAI session terminated: {} s audio, {} s session", audioDuration, sessionDuration);
                             }
                         }
                     } catch (Exception e) {
-                        System.err.println("Error processing AssemblyAI message: " + e.getMessage());
-                        e.printStackTrace();
+                        log.atWarn().addKeyValue("session", sessionId).setCause(e).log("Error processing AssemblyAI message");
                     }
                 }
 
                 @Override
                 public void onClose(int code, String reason, boolean remote) {
-                    System.out.println("AssemblyAI WebSocket closed for session " + sessionId + ": " + reason);
+                    log.atInfo().addKeyValue("session", sessionId).log("AssemblyAI WebSocket closed: {}", reason);
                     activeSessions.remove(sessionId);
                     callback.onClose();
                 }
 
                 @Override
                 public void onError(Exception ex) {
-                    System.err.println("AssemblyAI WebSocket error for session " + sessionId + ": " + ex.getMessage());
+                    log.atWarn().addKeyValue("session", sessionId).log("AssemblyAI WebSocket error: {}", ex.getMessage());
                     callback.onError(ex);
                 }
             };
@@ -145,23 +132,22 @@ public class AssemblyAIStreamingService {
                 sslContext.init(null, null, new SecureRandom());
                 SSLSocketFactory factory = sslContext.getSocketFactory();
                 client.setSocketFactory(factory);
-                System.out.println("SSL context configured for TLS 1.2+");
+                log.debug("SSL context configured for TLS 1.2+");
             } catch (Exception e) {
-                System.err.println("Failed to configure SSL: " + e.getMessage());
-                e.printStackTrace();
+                log.warn("Failed to configure SSL", e);
             }
 
             // Set connection timeout
             client.setConnectionLostTimeout(60);
             
-            System.out.println("Attempting to connect to AssemblyAI...");
+            log.debug("Attempting to connect to AssemblyAI");
             client.connect();
             
             // Wait a bit to see if connection establishes
             Thread.sleep(2000);
             
         } catch (Exception e) {
-            System.err.println("Failed to create AssemblyAI streaming session: " + e.getMessage());
+            log.warn("Failed to create AssemblyAI streaming session: {}", e.getMessage());
             future.completeExceptionally(e);
         }
         
@@ -203,15 +189,10 @@ public class AssemblyAIStreamingService {
             if (client != null && client.isOpen()) {
                 try {
                     // Send terminate message
-                    Map<String, Object> terminateMessage = new HashMap<>();
-                    terminateMessage.put("terminate_session", true);
-                    
-                    ObjectMapper mapper = new ObjectMapper();
-                    String terminateJson = mapper.writeValueAsString(terminateMessage);
-                    client.send(terminateJson);
+                    client.send("{\"terminate_session\":true}");
                     client.close();
                 } catch (Exception e) {
-                    System.err.println("Error closing AssemblyAI session: " + e.getMessage());
+                    log.warn("Error closing AssemblyAI session: {}", e.getMessage());
                 }
             }
         }
@@ -1,157 +1,531 @@
 package com.solocrew;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 
-import javax.net.ssl.SSLContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
 
 @Service
-public class AssemblyAIStreamingServiceV2 {
+public class AssemblyAIStreamingServiceV2 implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(AssemblyAIStreamingServiceV2.class);
+    /** Raw upstream messages and transcripts; debug only, they hold what the user said. */
+    private static final Logger payloadLog = LoggerFactory.getLogger("com.solocrew.payload.upstream");
 
     @Value("${assemblyai.api.key}")
     private String apiKey;
 
-    private final ObjectMapper objectMapper;
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${assemblyai.streaming.send-queue.capacity:100}")
+    private int sendQueueCapacity;
+
+    @Value("${assemblyai.streaming.url:wss://streaming.assemblyai.com/v3/ws}")
+    private String streamingUrl;
+
+    @Value("${assemblyai.streaming.send-queue.overflow-policy:DROP_OLDEST}")
+    private AudioSendQueue.OverflowPolicy sendQueueOverflowPolicy;
+
+    @Value("${assemblyai.streaming.send-queue.sender-threads:16}")
+    private int senderThreads;
+
+    @Value("${assemblyai.streaming.coalesce.target-ms:50}")
+    private int coalesceTargetMs;
+
+    @Value("${assemblyai.streaming.coalesce.max-latency-ms:100}")
+    private long coalesceMaxLatencyMs;
+
+    @Value("${assemblyai.streaming.handshake.timeout-ms:10000}")
+    private long handshakeTimeoutMs;
+
+    @Value("${assemblyai.streaming.handshake.max-concurrent:32}")
+    private int maxConcurrentHandshakes;
+
+    @Value("${assemblyai.streaming.pool.enabled:false}")
+    private boolean poolEnabled;
+
+    @Value("${assemblyai.streaming.pool.size:4}")
+    private int poolSize;
+
+    @Value("${assemblyai.streaming.pool.ttl-ms:60000}")
+    private long poolTtlMs;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private final ConcurrentHashMap<String, StreamingSessionV2> activeSessions;
+    private final ConcurrentHashMap<String, CompletableFuture<StreamingSessionV2>> pendingHandshakes;
+    private final AudioBufferPool audioBufferPool;
+    private final AudioSendQueue.Stats sendQueueStats = new AudioSendQueue.Stats();
+    private final AudioFrameCoalescer.Stats coalescerStats = new AudioFrameCoalescer.Stats();
+    private ThreadPoolExecutor audioSenderExecutor;
+    private final ScheduledThreadPoolExecutor audioFlushScheduler;
 
-    private static final String ASSEMBLYAI_STREAMING_URL = "wss://streaming.assemblyai.com/v3/ws";
+    private static final int AUDIO_BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED_AUDIO_BUFFERS = 1024;
 
     public AssemblyAIStreamingServiceV2() {
-        this.objectMapper = new ObjectMapper();
         this.activeSessions = new ConcurrentHashMap<>();
+        this.pendingHandshakes = new ConcurrentHashMap<>();
+        this.audioBufferPool = new AudioBufferPool(AUDIO_BUFFER_SIZE, MAX_POOLED_AUDIO_BUFFERS);
+        this.audioFlushScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "assemblyai-audio-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most flush timers are cancelled by a size flush; don't let them pile up in the queue
+        this.audioFlushScheduler.setRemoveOnCancelPolicy(true);
     }
 
+    private StandardWebSocketClient client;
+    private ThreadPoolTaskExecutor handshakeExecutor;
+    private StreamingConnectionPool connectionPool;
+
+    @PostConstruct
+    public void initClient() {
+        // The container's connectToServer blocks for the whole TLS + upgrade exchange, so it runs
+        // on a bounded pool of its own rather than on the caller's (WebSocket inbound) thread.
+        handshakeExecutor = new ThreadPoolTaskExecutor();
+        handshakeExecutor.setThreadNamePrefix("assemblyai-handshake-");
+        handshakeExecutor.setCorePoolSize(maxConcurrentHandshakes);
+        handshakeExecutor.setMaxPoolSize(maxConcurrentHandshakes);
+        handshakeExecutor.setAllowCoreThreadTimeOut(true);
+        handshakeExecutor.setDaemon(true);
+        handshakeExecutor.initialize();
+
+        // Each session has at most one drain task, so the queue is bounded by the session count; a
+        // slow upstream socket holds one sender thread, never more
+        AtomicInteger senderThreadCount = new AtomicInteger();
+        audioSenderExecutor = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "assemblyai-audio-sender-" + senderThreadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        audioSenderExecutor.allowCoreThreadTimeOut(true);
+
+        client = new StandardWebSocketClient();
+        client.setTaskExecutor(handshakeExecutor);
+        // Bound the connect itself too, so an abandoned handshake does not hold a pool thread
+        client.setUserProperties(Map.of("org.apache.tomcat.websocket.IO_TIMEOUT_MS", String.valueOf(handshakeTimeoutMs)));
+
+        pipelineMetrics.gaugeActiveSessions("upstream", activeSessions);
+
+        if (poolEnabled) {
+            connectionPool = new StreamingConnectionPool(() -> connect("pool"), poolSize, poolTtlMs);
+            connectionPool.refill();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pendingHandshakes.values().forEach(pending -> pending.cancel(false));
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+        audioFlushScheduler.shutdownNow();
+        audioSenderExecutor.shutdownNow();
+        handshakeExecutor.shutdown();
+    }
+
+    /**
+     * Returns a session bound to {@code sessionId}. With the warm pool enabled an idle
+     * pre-established connection is handed out immediately; otherwise the upstream handshake is
+     * started and the future completes once it is open. The future fails after
+     * {@code assemblyai.streaming.handshake.timeout-ms} and can be abandoned with
+     * {@link #cancelStreamingSession}; a connection that opens after its future was cancelled or
+     * timed out is closed straight away. Fails at once if a handshake for {@code sessionId} is
+     * already in flight.
+     */
     public CompletableFuture<StreamingSessionV2> createStreamingSession(String sessionId, TranscriptCallback callback) {
+        if (pendingHandshakes.containsKey(sessionId)) {
+            return handshakeInProgress(sessionId);
+        }
+        if (connectionPool != null) {
+            UpstreamConnection pooled;
+            while ((pooled = connectionPool.acquire()) != null) {
+                StreamingSessionV2 streamingSession = pooled.bind(sessionId, callback);
+                if (streamingSession != null) {
+                    log.atDebug().addKeyValue("session", sessionId).log("Using pre-warmed upstream connection");
+                    return CompletableFuture.completedFuture(streamingSession);
+                }
+            }
+        }
+
         CompletableFuture<StreamingSessionV2> future = new CompletableFuture<>();
-        
+        if (pendingHandshakes.putIfAbsent(sessionId, future) != null) {
+            return handshakeInProgress(sessionId);
+        }
+
+        CompletableFuture<UpstreamConnection> connection = connect(sessionId);
+        connection.whenComplete((upstream, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+                return;
+            }
+            StreamingSessionV2 streamingSession = upstream.bind(sessionId, callback);
+            if (streamingSession == null) {
+                future.completeExceptionally(new IllegalStateException("AssemblyAI V2 connection closed before use"));
+            } else if (!future.complete(streamingSession)) {
+                // Timed out or cancelled while the handshake was in flight
+                log.atInfo().addKeyValue("session", sessionId).log("Discarding late upstream connection");
+                activeSessions.remove(sessionId, streamingSession);
+                streamingSession.close();
+            }
+        });
+        future.orTimeout(handshakeTimeoutMs, TimeUnit.MILLISECONDS).whenComplete((session, throwable) -> {
+            pendingHandshakes.remove(sessionId, future);
+            if (throwable instanceof TimeoutException) {
+                log.atWarn().addKeyValue("session", sessionId).log("Upstream handshake timed out after {} ms", handshakeTimeoutMs);
+            }
+            if (throwable != null) {
+                connection.cancel(false);
+            }
+        });
+
+        return future;
+    }
+
+    private static CompletableFuture<StreamingSessionV2> handshakeInProgress(String sessionId) {
+        // The first handshake still owns the session id; replacing it would orphan its connection
+        return CompletableFuture.failedFuture(
+                new IllegalStateException("Upstream handshake already in progress for session " + sessionId));
+    }
+
+    /**
+     * Opens a new, not yet bound upstream connection. {@code label} is only used for logging.
+     */
+    CompletableFuture<UpstreamConnection> connect(String label) {
+        UpstreamConnection upstream = new UpstreamConnection();
+
         try {
-            String connectionUrl = ASSEMBLYAI_STREAMING_URL + "?sample_rate=16000&format_turns=true";
-            System.out.println("=== ASSEMBLYAI V2 CONNECTION ATTEMPT ===");
-            System.out.println("URL: " + connectionUrl);
-            System.out.println("API Key length: " + apiKey.length());
-            System.out.println("========================================");
-            
+            String connectionUrl = streamingUrl + "?sample_rate=16000&format_turns=true";
+            log.atDebug().addKeyValue("session", label).log("Connecting upstream to {}", connectionUrl);
+
             URI serverUri = new URI(connectionUrl);
             
-            StandardWebSocketClient client = new StandardWebSocketClient();
-            
             WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
             headers.add("Authorization", apiKey);
-            
-            WebSocketHandler handler = new WebSocketHandler() {
-                private WebSocketSession webSocketSession;
-                
-                @Override
-                public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-                    this.webSocketSession = session;
-                    System.out.println("=== ASSEMBLYAI V2 CONNECTION OPENED ===");
-                    System.out.println("Session: " + sessionId);
-                    System.out.println("WebSocket Session: " + session.getId());
-                    System.out.println("======================================");
-                    
-                    StreamingSessionV2 streamingSession = new StreamingSessionV2(sessionId, session, callback);
-                    activeSessions.put(sessionId, streamingSession);
-                    future.complete(streamingSession);
-                }
 
-                @Override
-                public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
-                    if (message instanceof TextMessage) {
-                        String payload = ((TextMessage) message).getPayload();
-                        
-                        System.out.println("=== ASSEMBLYAI V2 RAW RESPONSE ===");
-                        System.out.println("Session: " + sessionId);
-                        System.out.println("Raw JSON: " + payload);
-                        System.out.println("=================================");
-                        
-                        try {
-                            JsonNode jsonMessage = objectMapper.readTree(payload);
-                            
-                            if (jsonMessage.has("type")) {
-                                String messageType = jsonMessage.get("type").asText();
-                                
-                                if ("Begin".equals(messageType)) {
-                                    String assId = jsonMessage.has("id") ? jsonMessage.get("id").asText() : "unknown";
-                                    System.out.println("=== ASSEMBLYAI V2 SESSION STARTED ===");
-                                    System.out.println("AssemblyAI Session ID: " + assId);
-                                    System.out.println("====================================");
-                                } else if ("Turn".equals(messageType)) {
-                                    String transcript = jsonMessage.has("transcript") ? jsonMessage.get("transcript").asText() : "";
-                                    boolean isFormatted = jsonMessage.has("turn_is_formatted") ? jsonMessage.get("turn_is_formatted").asBoolean() : false;
-                                    
-                                    if (!transcript.trim().isEmpty()) {
-                                        if (isFormatted) {
-                                            System.out.println("=== FINAL TRANSCRIPT V2 ===");
-                                            System.out.println("Text: " + transcript);
-                                            System.out.println("==========================");
-                                            callback.onTranscript(transcript, true);
-                                        } else {
-                                            System.out.println("=== PARTIAL TRANSCRIPT V2 ===");
-                                            System.out.println("Text: " + transcript);
-                                            System.out.println("=============================");
-                                        }
-                                    }
-                                } else if ("Termination".equals(messageType)) {
-                                    System.out.println("=== ASSEMBLYAI V2 SESSION TERMINATED ===");
-                                    System.out.println("=======================================");
-                                }
-                            }
-                        } catch (Exception e) {
-                            System.err.println("Error processing AssemblyAI V2 message: " + e.getMessage());
-                            e.printStackTrace();
-                        }
-                    }
+            CompletableFuture<WebSocketSession> handshake = client.execute(upstream, headers, serverUri);
+            handshake.whenComplete((session, throwable) -> {
+                if (throwable != null) {
+                    upstream.opened.completeExceptionally(throwable);
                 }
-
-                @Override
-                public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
-                    System.err.println("AssemblyAI V2 WebSocket transport error for session " + sessionId + ": " + exception.getMessage());
-                    exception.printStackTrace();
-                    callback.onError(new Exception(exception));
+            });
+            upstream.opened.orTimeout(handshakeTimeoutMs, TimeUnit.MILLISECONDS).whenComplete((opened, throwable) -> {
+                pipelineMetrics.recordHandshake(System.nanoTime() - upstream.connectStartedNanos,
+                        throwable == null ? "success" : throwable instanceof TimeoutException ? "timeout" : "error");
+                if (throwable != null) {
+                    handshake.cancel(true);
                 }
-
-                @Override
-                public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
-                    System.out.println("AssemblyAI V2 WebSocket closed for session " + sessionId + ": " + closeStatus.toString());
-                    activeSessions.remove(sessionId);
-                    callback.onClose();
-                }
-
-                @Override
-                public boolean supportsPartialMessages() {
-                    return false;
-                }
-            };
-            
-            client.doHandshake(handler, headers, serverUri).get();
+            });
             
         } catch (Exception e) {
-            System.err.println("Failed to create AssemblyAI V2 streaming session: " + e.getMessage());
-            e.printStackTrace();
-            future.completeExceptionally(e);
+            log.atError().addKeyValue("session", label).setCause(e).log("Failed to start upstream connection");
+            upstream.opened.completeExceptionally(e);
         }
         
-        return future;
+        return upstream.opened;
+    }
+
+    /**
+     * Closes expired pooled connections, keeps the remaining idle ones alive and tops the pool
+     * back up. No-op unless {@code assemblyai.streaming.pool.enabled} is set.
+     */
+    @Scheduled(fixedDelayString = "${assemblyai.streaming.pool.keepalive-interval-ms:5000}")
+    public void maintainConnectionPool() {
+        if (connectionPool != null) {
+            connectionPool.maintain();
+        }
+    }
+
+    /**
+     * Abandons an in-flight handshake, e.g. because the client disconnected before it finished.
+     */
+    public void cancelStreamingSession(String sessionId) {
+        CompletableFuture<StreamingSessionV2> pending = pendingHandshakes.remove(sessionId);
+        if (pending != null && pending.cancel(false)) {
+            log.atDebug().addKeyValue("session", sessionId).log("Cancelled pending upstream handshake");
+        }
     }
 
     public void closeSession(String sessionId) {
         StreamingSessionV2 session = activeSessions.get(sessionId);
         if (session != null) {
             session.close();
-            activeSessions.remove(sessionId);
+            activeSessions.remove(sessionId, session);
+        }
+    }
+
+    /**
+     * Upstream audio meters: sender pool use, send queue depth across active sessions, frames by what happened to
+     * them, and coalescing. Pool meters are added when the warm pool is enabled.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("voice.upstream.sender.threads.active", audioSenderExecutor, ThreadPoolExecutor::getActiveCount)
+                .description("Sender threads busy draining a session's queue")
+                .register(registry);
+        Gauge.builder("voice.upstream.sender.waiting", audioSenderExecutor, executor -> executor.getQueue().size())
+                .description("Sessions with audio queued, waiting for a sender thread")
+                .register(registry);
+        Gauge.builder("voice.upstream.send.queue.depth", activeSessions, AssemblyAIStreamingServiceV2::totalSendQueueDepth)
+                .description("Audio frames waiting to be sent upstream, all sessions")
+                .register(registry);
+        sendFrameCounter(registry, "enqueued", AudioSendQueue.Stats::getEnqueuedFrames);
+        sendFrameCounter(registry, "dropped", AudioSendQueue.Stats::getDroppedFrames);
+        sendFrameCounter(registry, "coalesced", AudioSendQueue.Stats::getCoalescedFrames);
+        FunctionCounter.builder("voice.upstream.send.messages", sendQueueStats, AudioSendQueue.Stats::getSentMessages)
+                .tag("outcome", "sent")
+                .register(registry);
+        FunctionCounter.builder("voice.upstream.send.messages", sendQueueStats, AudioSendQueue.Stats::getFailedSends)
+                .tag("outcome", "failed")
+                .register(registry);
+
+        FunctionCounter.builder("voice.upstream.coalesce.frames", coalescerStats, AudioFrameCoalescer.Stats::getFramesIn)
+                .register(registry);
+        FunctionCounter.builder("voice.upstream.coalesce.passthrough", coalescerStats, AudioFrameCoalescer.Stats::getPassthroughFrames)
+                .register(registry);
+        FunctionCounter.builder("voice.upstream.coalesce.timer.flushes", coalescerStats, AudioFrameCoalescer.Stats::getTimerFlushes)
+                .register(registry);
+        FunctionTimer.builder("voice.upstream.coalesce.latency", coalescerStats,
+                        AudioFrameCoalescer.Stats::getBatchedMessages, AudioFrameCoalescer.Stats::getBatchLatencyNanos,
+                        TimeUnit.NANOSECONDS)
+                .description("Wait of the first byte of each batched message")
+                .register(registry);
+
+        if (connectionPool != null) {
+            connectionPool.bindTo(registry);
+        }
+    }
+
+    private void sendFrameCounter(MeterRegistry registry, String outcome, ToLongFunction<AudioSendQueue.Stats> count) {
+        FunctionCounter.builder("voice.upstream.send.frames", sendQueueStats, count::applyAsLong)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static long totalSendQueueDepth(Map<String, StreamingSessionV2> sessions) {
+        long depth = 0;
+        for (StreamingSessionV2 session : sessions.values()) {
+            depth += session.getSendQueueDepth();
+        }
+        return depth;
+    }
+
+    /**
+     * Handler for one upstream connection. It is opened unbound, either for an immediate
+     * {@link #createStreamingSession} or to wait in the warm pool, and only starts delivering
+     * transcripts once {@link #bind} attaches it to a client session.
+     */
+    class UpstreamConnection implements WebSocketHandler {
+
+        final CompletableFuture<UpstreamConnection> opened = new CompletableFuture<>();
+        private final long connectStartedNanos = System.nanoTime();
+        private volatile long handshakeNanos;
+        private volatile long openedAtNanos;
+        private volatile WebSocketSession webSocketSession;
+        private volatile String sessionId;
+        private volatile TranscriptCallback callback;
+        private volatile StreamingSessionV2 streamingSession;
+        private boolean bound;
+        /** Last partial text delivered; upstream messages are handled one at a time. */
+        private String lastPartial;
+
+        /**
+         * Attaches the connection to a client session.
+         *
+         * @return the new session, or null if the connection was already bound or has closed
+         */
+        synchronized StreamingSessionV2 bind(String sessionId, TranscriptCallback callback) {
+            if (bound || !isOpen()) {
+                return null;
+            }
+            bound = true;
+            this.sessionId = sessionId;
+            this.callback = callback;
+
+            AudioSendQueue sendQueue = new AudioSendQueue(webSocketSession, audioBufferPool, audioSenderExecutor,
+                    sendQueueCapacity, sendQueueOverflowPolicy,
+                    () -> callback.onError(new Exception("Upstream audio send queue overflowed")), sendQueueStats);
+            AudioFrameCoalescer coalescer = null;
+            if (coalesceTargetMs > 0) {
+                int bytesPerMs = AudioFormat.UPSTREAM.getSampleRate() / 1000 * AudioFormat.UPSTREAM.getFrameBytes();
+                coalescer = new AudioFrameCoalescer(sendQueue, audioBufferPool, audioFlushScheduler,
+                        coalesceTargetMs * bytesPerMs, coalesceMaxLatencyMs, coalescerStats);
+            }
+            StreamingSessionV2 streamingSession = new StreamingSessionV2(sessionId, webSocketSession, sendQueue,
+                    coalescer, callback);
+            this.streamingSession = streamingSession;
+            activeSessions.put(sessionId, streamingSession);
+            return streamingSession;
+        }
+
+        /**
+         * Sends a frame while the connection is idle in the pool. Synchronized with {@link #bind}
+         * so it never overlaps the send queue's own writes.
+         */
+        synchronized boolean sendKeepalive(ByteBuffer frame) {
+            if (bound || !isOpen()) {
+                return false;
+            }
+            try {
+                webSocketSession.sendMessage(new BinaryMessage(frame, true));
+                return true;
+            } catch (Exception e) {
+                log.warn("Error sending keepalive on pooled upstream connection: {}", e.getMessage());
+                return false;
+            }
+        }
+
+        boolean isOpen() {
+            WebSocketSession session = webSocketSession;
+            return session != null && session.isOpen();
+        }
+
+        long getHandshakeNanos() {
+            return handshakeNanos;
+        }
+
+        long getOpenedAtNanos() {
+            return openedAtNanos;
+        }
+
+        void close() {
+            WebSocketSession session = webSocketSession;
+            if (session != null && session.isOpen()) {
+                try {
+                    session.close();
+                } catch (Exception e) {
+                    log.atWarn().addKeyValue("session", sessionId).log("Error closing upstream connection: {}", e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+            this.webSocketSession = session;
+            this.openedAtNanos = System.nanoTime();
+            this.handshakeNanos = openedAtNanos - connectStartedNanos;
+            log.atInfo().addKeyValue("upstreamSession", session.getId())
+                    .log("Upstream connection opened, handshake {} ms", TimeUnit.NANOSECONDS.toMillis(handshakeNanos));
+
+            if (!opened.complete(this)) {
+                // Nobody is waiting for this connection any more
+                close();
+            }
+        }
+
+        @Override
+        public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+            if (message instanceof TextMessage) {
+                String payload = ((TextMessage) message).getPayload();
+                TranscriptCallback callback = this.callback;
+                payloadLog.atDebug().addKeyValue("session", sessionId).log("Upstream message: {}", payload);
+
+                try {
+                    StreamingMessage streamingMessage = StreamingMessage.decode(objectMapper.getFactory(), payload);
+                    String messageType = streamingMessage.type();
+
+                    if (messageType != null) {
+                        if (StreamingMessage.BEGIN.equals(messageType)) {
+                            String assId = streamingMessage.id() != null ? streamingMessage.id() : "unknown";
+                            log.atInfo().addKeyValue("session", sessionId).addKeyValue("upstreamId", assId)
+                                    .log("Upstream session started");
+                        } else if (StreamingMessage.TURN.equals(messageType) && callback != null) {
+                            String transcript = streamingMessage.transcript();
+                            boolean isFormatted = streamingMessage.turnIsFormatted();
+                            
+                            if (!transcript.isBlank()) {
+                                if (isFormatted) {
+                                    log.atDebug().addKeyValue("session", sessionId).log("Final transcript received");
+                                    lastPartial = null;
+                                    callback.onTranscript(transcript, true);
+                                } else if (streamingMessage.endOfTurn()) {
+                                    lastPartial = null;
+                                    callback.onEndOfTurn(transcript);
+                                } else if (!transcript.equals(lastPartial)) {
+                                    lastPartial = transcript;
+                                    callback.onTranscript(transcript, false);
+                                }
+                            }
+                        } else if (StreamingMessage.TERMINATION.equals(messageType)) {
+                            log.atInfo().addKeyValue("session", sessionId).log("Upstream session terminated");
+                        }
+                    }
+                } catch (Exception e) {
+                    log.atError().addKeyValue("session", sessionId).setCause(e).log("Error processing upstream message");
+                }
+            }
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+            log.atError().addKeyValue("session", sessionId).setCause(exception).log("Upstream transport error");
+            TranscriptCallback callback = this.callback;
+            if (callback != null) {
+                callback.onError(new Exception(exception));
+            }
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+            log.atInfo().addKeyValue("session", sessionId).log("Upstream connection closed: {}", closeStatus);
+            TranscriptCallback callback = this.callback;
+            if (callback != null) {
+                activeSessions.remove(sessionId, streamingSession);
+                callback.onClose();
+            }
+        }
+
+        @Override
+        public boolean supportsPartialMessages() {
+            return false;
         }
     }
 
     public interface TranscriptCallback {
+        /**
+         * A formatted end-of-turn transcript ({@code isFinal}), or the unformatted text of the
+         * turn so far. Repeats of the same partial text are not delivered.
+         */
         void onTranscript(String text, boolean isFinal);
+
+        /**
+         * The turn has ended; {@code text} is unformatted, and the formatted version follows as a
+         * final {@link #onTranscript}.
+         */
+        default void onEndOfTurn(String text) {
+        }
+
         void onClose();
         void onError(Exception ex);
     }
@@ -159,30 +533,62 @@ public class AssemblyAIStreamingServiceV2 {
     public static class StreamingSessionV2 {
         private final String sessionId;
         private final WebSocketSession webSocketSession;
+        private final AudioSendQueue sendQueue;
+        private final AudioFrameCoalescer coalescer;
         private final TranscriptCallback callback;
 
-        public StreamingSessionV2(String sessionId, WebSocketSession webSocketSession, TranscriptCallback callback) {
+        public StreamingSessionV2(String sessionId, WebSocketSession webSocketSession, AudioSendQueue sendQueue,
+                                  TranscriptCallback callback) {
+            this(sessionId, webSocketSession, sendQueue, null, callback);
+        }
+
+        /**
+         * @param coalescer batches frames in front of {@code sendQueue}, or null to queue each frame as is
+         */
+        public StreamingSessionV2(String sessionId, WebSocketSession webSocketSession, AudioSendQueue sendQueue,
+                                  AudioFrameCoalescer coalescer, TranscriptCallback callback) {
             this.sessionId = sessionId;
             this.webSocketSession = webSocketSession;
+            this.sendQueue = sendQueue;
+            this.coalescer = coalescer;
             this.callback = callback;
         }
 
         public void sendAudioData(byte[] audioData) {
+            sendAudioData(ByteBuffer.wrap(audioData));
+        }
+
+        /**
+         * Queues an audio frame for the upstream sender and returns without waiting for the
+         * network. The frame is copied into a pooled buffer, so the caller's buffer (typically
+         * the container's inbound frame buffer) may be reused once this returns. With coalescing
+         * enabled the frame may be sent as part of a larger message, up to the configured
+         * maximum latency later.
+         */
+        public void sendAudioData(ByteBuffer audioData) {
             if (webSocketSession != null && webSocketSession.isOpen()) {
-                try {
-                    webSocketSession.sendMessage(new BinaryMessage(ByteBuffer.wrap(audioData)));
-                } catch (Exception e) {
-                    System.err.println("Error sending audio data: " + e.getMessage());
+                if (coalescer != null) {
+                    coalescer.offer(audioData);
+                } else {
+                    sendQueue.offer(audioData);
                 }
             }
         }
 
+        public int getSendQueueDepth() {
+            return sendQueue.getDepth();
+        }
+
         public void close() {
+            if (coalescer != null) {
+                coalescer.close();
+            }
+            sendQueue.close();
             if (webSocketSession != null && webSocketSession.isOpen()) {
                 try {
                     webSocketSession.close();
                 } catch (Exception e) {
-                    System.err.println("Error closing AssemblyAI V2 session: " + e.getMessage());
+                    log.atWarn().addKeyValue("session", sessionId).log("Error closing upstream session: {}", e.getMessage());
                 }
             }
         }
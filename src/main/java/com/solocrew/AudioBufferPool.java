@@ -0,0 +1,47 @@
+package com.solocrew;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Fixed-size heap buffers shared by all streaming sessions. Frames that must outlive the
+ * container's inbound buffer (i.e. anything queued for asynchronous sending) are copied into
+ * one of these instead of a freshly allocated array.
+ */
+public class AudioBufferPool {
+
+    private final int bufferSize;
+    private final ArrayBlockingQueue<ByteBuffer> free;
+
+    public AudioBufferPool(int bufferSize, int maxPooledBuffers) {
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(maxPooledBuffers);
+    }
+
+    /**
+     * Returns a cleared buffer with at least {@code minCapacity} bytes. Requests larger than the
+     * pool's buffer size get a one-off buffer that {@link #release} will simply drop.
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity > bufferSize) {
+            return ByteBuffer.allocate(minCapacity);
+        }
+        ByteBuffer buffer = free.poll();
+        return buffer != null ? buffer : ByteBuffer.allocate(bufferSize);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize) {
+            buffer.clear();
+            free.offer(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getFreeBuffers() {
+        return free.size();
+    }
+}
@@ -0,0 +1,113 @@
+package com.solocrew;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Raw PCM layout of client audio: sample encoding, rate and interleaved channel count.
+ */
+public final class AudioFormat {
+
+    public enum Encoding {
+        PCM_S16LE(2),
+        PCM_F32LE(4);
+
+        private final int bytesPerSample;
+
+        Encoding(int bytesPerSample) {
+            this.bytesPerSample = bytesPerSample;
+        }
+
+        public int getBytesPerSample() {
+            return bytesPerSample;
+        }
+    }
+
+    /** What the upstream streaming API is opened with ({@code sample_rate=16000}, 16-bit mono). */
+    public static final AudioFormat UPSTREAM = new AudioFormat(Encoding.PCM_S16LE, 16000, 1);
+
+    // Bounds on what clients may declare: beyond them conversion costs grow without limit
+    public static final int MIN_SAMPLE_RATE = 8000;
+    public static final int MAX_SAMPLE_RATE = 192000;
+    public static final int MAX_CHANNELS = 8;
+
+    private final Encoding encoding;
+    private final int sampleRate;
+    private final int channels;
+
+    /**
+     * @throws IllegalArgumentException unless the rate is 8–192 kHz and there are 1–8 channels
+     */
+    public AudioFormat(Encoding encoding, int sampleRate, int channels) {
+        if (sampleRate < MIN_SAMPLE_RATE || sampleRate > MAX_SAMPLE_RATE || channels < 1 || channels > MAX_CHANNELS) {
+            throw new IllegalArgumentException("Unsupported audio format: " + sampleRate + " Hz, " + channels
+                    + " channels; expected " + MIN_SAMPLE_RATE + "-" + MAX_SAMPLE_RATE + " Hz and 1-" + MAX_CHANNELS + " channels");
+        }
+        this.encoding = encoding;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    /**
+     * Reads the optional {@code audio_format} object of a {@code start_streaming} message, e.g.
+     * {@code {"encoding": "pcm_f32le", "sample_rate": 48000, "channels": 2}}. Returns null if
+     * there is none, in which case the format is detected from the audio.
+     */
+    public static AudioFormat fromJson(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        String encoding = node.path("encoding").asText("pcm_s16le").toLowerCase();
+        Encoding parsed;
+        switch (encoding) {
+            case "pcm_s16le":
+            case "s16le":
+            case "int16":
+                parsed = Encoding.PCM_S16LE;
+                break;
+            case "pcm_f32le":
+            case "f32le":
+            case "float32":
+                parsed = Encoding.PCM_F32LE;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported audio encoding: " + encoding);
+        }
+        return new AudioFormat(parsed, node.path("sample_rate").asInt(UPSTREAM.sampleRate), node.path("channels").asInt(1));
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /** Bytes per sample frame, i.e. one sample for every channel. */
+    public int getFrameBytes() {
+        return encoding.getBytesPerSample() * channels;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof AudioFormat)) {
+            return false;
+        }
+        AudioFormat that = (AudioFormat) other;
+        return encoding == that.encoding && sampleRate == that.sampleRate && channels == that.channels;
+    }
+
+    @Override
+    public int hashCode() {
+        return (encoding.hashCode() * 31 + sampleRate) * 31 + channels;
+    }
+
+    @Override
+    public String toString() {
+        return encoding.name().toLowerCase() + " " + sampleRate + " Hz " + channels + "ch";
+    }
+}
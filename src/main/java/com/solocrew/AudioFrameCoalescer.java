@@ -0,0 +1,147 @@
+package com.solocrew;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batches small client audio frames into fewer, larger upstream messages for one session.
+ *
+ * <p>Browsers typically send 20 ms frames; forwarding each as its own WebSocket message means
+ * per-message framing, TLS record and syscall costs dominate, and the streaming API expects
+ * chunks of at least 50 ms anyway. Frames are appended to a pooled buffer and handed to the
+ * {@link AudioSendQueue} in messages of exactly {@code targetBytes}, splitting a frame across two
+ * messages where needed. A flush timer bounds how long the first byte of a message may wait, so
+ * the tail of an utterance is not held back when frames stop arriving (e.g. once the gate closes).
+ * Frames that are already at least the target size, arriving with nothing pending, are passed
+ * straight through.
+ *
+ * <p>Thread-safe: frames arrive on the client's inbound thread and timer flushes on the shared
+ * scheduler.
+ */
+public class AudioFrameCoalescer {
+
+    private final AudioSendQueue sendQueue;
+    private final AudioBufferPool bufferPool;
+    private final ScheduledExecutorService flushScheduler;
+    private final int targetBytes;
+    private final long maxLatencyNanos;
+    private final Runnable flushTask = this::flushOnTimer;
+    private final Stats stats;
+
+    private ByteBuffer pending;
+    private long pendingSinceNanos;
+    private ScheduledFuture<?> flushTimer;
+    private boolean closed;
+
+    /**
+     * @param stats counters shared with the other sessions' coalescers
+     */
+    public AudioFrameCoalescer(AudioSendQueue sendQueue, AudioBufferPool bufferPool,
+                               ScheduledExecutorService flushScheduler, int targetBytes, long maxLatencyMs, Stats stats) {
+        this.sendQueue = sendQueue;
+        this.bufferPool = bufferPool;
+        this.flushScheduler = flushScheduler;
+        this.targetBytes = targetBytes;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMs);
+        this.stats = stats;
+    }
+
+    /**
+     * Copies the frame's remaining bytes into the pending message, sending it whenever it
+     * reaches the target size. The caller's buffer is not retained.
+     */
+    public synchronized void offer(ByteBuffer frame) {
+        if (closed) {
+            return;
+        }
+        stats.framesIn.increment();
+
+        if (pending == null && frame.remaining() >= targetBytes) {
+            stats.passthroughFrames.increment();
+            sendQueue.offer(frame);
+            return;
+        }
+
+        int limit = frame.limit();
+        while (frame.hasRemaining()) {
+            if (pending == null) {
+                pending = bufferPool.acquire(targetBytes);
+                pending.limit(targetBytes);
+                pendingSinceNanos = System.nanoTime();
+                flushTimer = flushScheduler.schedule(flushTask, maxLatencyNanos, TimeUnit.NANOSECONDS);
+            }
+            int chunk = Math.min(frame.remaining(), pending.remaining());
+            frame.limit(frame.position() + chunk);
+            pending.put(frame);
+            frame.limit(limit);
+            if (!pending.hasRemaining()) {
+                flush();
+            }
+        }
+    }
+
+    private synchronized void flushOnTimer() {
+        // A timer that lost the race with a size flush finds a newer message, or none, pending
+        if (pending != null && System.nanoTime() - pendingSinceNanos >= maxLatencyNanos) {
+            stats.timerFlushes.increment();
+            flush();
+        }
+    }
+
+    private void flush() {
+        flushTimer.cancel(false);
+        flushTimer = null;
+        stats.batchedMessages.increment();
+        stats.batchLatencyNanos.add(System.nanoTime() - pendingSinceNanos);
+
+        ByteBuffer message = pending;
+        pending = null;
+        message.flip();
+        sendQueue.offerPooled(message);
+    }
+
+    /** Drops the pending message; the send queue is closed alongside, so it would not be sent. */
+    public synchronized void close() {
+        closed = true;
+        if (pending != null) {
+            flushTimer.cancel(false);
+            bufferPool.release(pending);
+            pending = null;
+        }
+    }
+
+    /**
+     * Counters shared by all sessions' coalescers.
+     */
+    public static final class Stats {
+        final LongAdder framesIn = new LongAdder();
+        final LongAdder passthroughFrames = new LongAdder();
+        final LongAdder batchedMessages = new LongAdder();
+        final LongAdder timerFlushes = new LongAdder();
+        /** How long the first byte of each batched message waited before it was queued for sending. */
+        final LongAdder batchLatencyNanos = new LongAdder();
+
+        public long getFramesIn() {
+            return framesIn.sum();
+        }
+
+        public long getPassthroughFrames() {
+            return passthroughFrames.sum();
+        }
+
+        public long getBatchedMessages() {
+            return batchedMessages.sum();
+        }
+
+        public long getTimerFlushes() {
+            return timerFlushes.sum();
+        }
+
+        public long getBatchLatencyNanos() {
+            return batchLatencyNanos.sum();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.solocrew;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A stage between a client's audio frames and the upstream send queue. One instance per
+ * streaming session, called from one thread at a time.
+ */
+public interface AudioFrameProcessor {
+
+    /** Forwards every frame unchanged. */
+    AudioFrameProcessor PASSTHROUGH = frame -> frame;
+
+    /**
+     * Processes one client frame and returns the audio to send upstream, or null to send nothing.
+     * The returned buffer may be the input or a buffer owned by the processor; either way it is
+     * only valid until the next call.
+     */
+    ByteBuffer process(ByteBuffer frame);
+
+    /**
+     * {@link System#nanoTime} of the last frame judged to contain speech, or 0 if the processor
+     * does not detect speech. May be read from other threads.
+     */
+    default long getLastVoicedNanos() {
+        return 0;
+    }
+}
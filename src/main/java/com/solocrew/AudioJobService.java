@@ -0,0 +1,356 @@
+package com.solocrew;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@code /api/audio} work as background jobs, so the request that submits an upload returns
+ * at once with a job id and no servlet thread or connection is held while it is transcribed.
+ *
+ * <p>At most {@code audio.jobs.max-concurrent} jobs run at a time; up to
+ * {@code audio.jobs.queue-capacity} more wait in FIFO order, and submissions beyond that are
+ * rejected. Jobs are themselves non-blocking, so the limit bounds upstream load rather than
+ * threads. The upload is moved to a temp file owned by the job, since the multipart copy is
+ * deleted when the submitting request ends. Finished jobs are kept for
+ * {@code audio.jobs.retention-ms} so clients can collect the result.
+ */
+@Service
+public class AudioJobService implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(AudioJobService.class);
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    @Autowired
+    private AppService appService;
+
+    @Value("${audio.jobs.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${audio.jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${audio.jobs.retention-ms:600000}")
+    private long retentionMs;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ConcurrentHashMap<String, AudioJob> jobs = new ConcurrentHashMap<>();
+
+    // Guarded by itself, together with running and starting
+    private final ArrayDeque<AudioJob> queue = new ArrayDeque<>();
+    private int running;
+    // A thread is in startQueuedJobs; a job finishing meanwhile leaves the start to it
+    private boolean starting;
+    private volatile boolean shuttingDown;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong queueWaitNanosTotal = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+
+    /**
+     * Validates the upload, takes ownership of it and queues the job.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public AudioJob submit(MultipartFile audioFile, String conversationUuid) throws Exception {
+        appService.validateAudioFile(audioFile);
+
+        Path audio = Files.createTempFile("audio-job-", ".upload");
+        AudioJob job = new AudioJob(UUID.randomUUID().toString(), conversationUuid, audioFile.getOriginalFilename(), audio);
+        try {
+            audioFile.transferTo(audio);
+            synchronized (queue) {
+                if (shuttingDown) {
+                    throw new RejectedExecutionException("Shutting down, not accepting audio jobs");
+                }
+                if (queue.size() >= queueCapacity) {
+                    throw new RejectedExecutionException("Too many audio jobs queued, please try again later");
+                }
+                jobs.put(job.id, job);
+                queue.addLast(job);
+            }
+        } catch (RejectedExecutionException | IOException e) {
+            if (e instanceof RejectedExecutionException) {
+                rejected.incrementAndGet();
+            }
+            deleteAudio(job);
+            throw e;
+        }
+        submitted.incrementAndGet();
+        startQueuedJobs();
+        return job;
+    }
+
+    public AudioJob get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Starts queued jobs while there is capacity. A job that fails synchronously finishes inside
+     * {@link #run}; its completion finds this loop active and leaves it to pick up the next job,
+     * rather than recursing.
+     */
+    private void startQueuedJobs() {
+        synchronized (queue) {
+            if (starting) {
+                return;
+            }
+            starting = true;
+        }
+        while (true) {
+            AudioJob job;
+            synchronized (queue) {
+                if (shuttingDown || running >= maxConcurrent || queue.isEmpty()) {
+                    starting = false;
+                    return;
+                }
+                job = queue.pollFirst();
+                running++;
+            }
+            run(job);
+        }
+    }
+
+    private void run(AudioJob job) {
+        job.startedAtNanos = System.nanoTime();
+        started.incrementAndGet();
+        queueWaitNanosTotal.addAndGet(job.startedAtNanos - job.createdAtNanos);
+        job.update(Status.RUNNING);
+
+        job.execution = appService.processAudio(new FileSystemResource(job.audio), job.filename, job.conversationUuid)
+                .doFinally(signal -> {
+                    deleteAudio(job);
+                    synchronized (queue) {
+                        running--;
+                    }
+                    startQueuedJobs();
+                })
+                .subscribe(result -> {
+                    job.result = result;
+                    succeeded.incrementAndGet();
+                    job.update(Status.SUCCEEDED);
+                }, error -> {
+                    job.error = error.getMessage();
+                    failed.incrementAndGet();
+                    job.update(Status.FAILED);
+                });
+        // Started just as shutdown swept the running jobs
+        if (shuttingDown) {
+            job.execution.dispose();
+        }
+    }
+
+    /**
+     * Completes with the job's state once it has finished, or with its current state after
+     * {@code wait}, whichever comes first.
+     */
+    public Mono<Map<String, Object>> awaitCompletion(AudioJob job, Duration wait) {
+        return job.updates.asFlux()
+                .filter(AudioJob::isFinished)
+                .next()
+                .timeout(wait, Mono.just(job))
+                .map(this::describe);
+    }
+
+    /**
+     * The job's current state followed by every change until it finishes.
+     */
+    public Flux<Map<String, Object>> watch(AudioJob job) {
+        return job.updates.asFlux()
+                .takeUntil(AudioJob::isFinished)
+                .map(this::describe);
+    }
+
+    public Map<String, Object> describe(AudioJob job) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("jobId", job.id);
+        view.put("status", job.status);
+        view.put("conversationUuid", job.conversationUuid);
+        if (job.status == Status.QUEUED) {
+            view.put("queuePosition", queuePosition(job));
+        }
+        if (job.result != null) {
+            try {
+                view.put("result", objectMapper.readTree(job.result));
+            } catch (IOException e) {
+                view.put("result", job.result);
+            }
+        }
+        if (job.error != null) {
+            view.put("error", job.error);
+        }
+        return view;
+    }
+
+    private int queuePosition(AudioJob job) {
+        synchronized (queue) {
+            int position = 0;
+            for (AudioJob queued : queue) {
+                if (queued == job) {
+                    return position;
+                }
+                position++;
+            }
+            return -1;
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictFinishedJobs() {
+        long expiredBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(retentionMs);
+        jobs.values().removeIf(job -> job.isFinished() && job.finishedAtNanos < expiredBefore);
+    }
+
+    /**
+     * Drops queued jobs first, so disposing a running job cannot start another one in its place,
+     * then cancels the running ones; each deletes its own temp file as it ends.
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (queue) {
+            shuttingDown = true;
+            for (AudioJob job : queue) {
+                deleteAudio(job);
+                job.error = "Shut down before the job started";
+                job.update(Status.FAILED);
+            }
+            queue.clear();
+        }
+        for (AudioJob job : jobs.values()) {
+            Disposable execution = job.execution;
+            if (execution != null) {
+                execution.dispose();
+            }
+        }
+    }
+
+    private static void deleteAudio(AudioJob job) {
+        try {
+            Files.deleteIfExists(job.audio);
+        } catch (IOException e) {
+            log.warn("Failed to delete audio for job {}: {}", job.id, e.getMessage());
+        }
+    }
+
+    /**
+     * Job meters under {@code voice.audio.jobs.*}: jobs queued and running, submissions
+     * (outcome = accepted | rejected), finished jobs (outcome = succeeded | failed) and the time
+     * started jobs spent queued.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("voice.audio.jobs.queued", this, AudioJobService::queuedJobs).register(registry);
+        Gauge.builder("voice.audio.jobs.running", this, AudioJobService::runningJobs).register(registry);
+        Gauge.builder("voice.audio.jobs.retained", jobs, Map::size).register(registry);
+        FunctionCounter.builder("voice.audio.jobs.submitted", submitted, AtomicLong::get)
+                .tag("outcome", "accepted")
+                .register(registry);
+        FunctionCounter.builder("voice.audio.jobs.submitted", rejected, AtomicLong::get)
+                .tag("outcome", "rejected")
+                .register(registry);
+        FunctionCounter.builder("voice.audio.jobs.finished", succeeded, AtomicLong::get)
+                .tag("outcome", "succeeded")
+                .register(registry);
+        FunctionCounter.builder("voice.audio.jobs.finished", failed, AtomicLong::get)
+                .tag("outcome", "failed")
+                .register(registry);
+        FunctionTimer.builder("voice.audio.jobs.queue.wait", this,
+                        service -> service.started.get(), service -> service.queueWaitNanosTotal.get(),
+                        TimeUnit.NANOSECONDS)
+                .register(registry);
+    }
+
+    private double queuedJobs() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    private double runningJobs() {
+        synchronized (queue) {
+            return running;
+        }
+    }
+
+    public static final class AudioJob {
+        private final String id;
+        private final String conversationUuid;
+        private final String filename;
+        private final Path audio;
+        private final long createdAtNanos = System.nanoTime();
+        // Replays the latest state to each new subscriber, then pushes changes
+        private final Sinks.Many<AudioJob> updates = Sinks.many().replay().latest();
+        private volatile Status status = Status.QUEUED;
+        private volatile String result;
+        private volatile String error;
+        private volatile long startedAtNanos;
+        private volatile long finishedAtNanos;
+        private volatile Disposable execution;
+
+        private AudioJob(String id, String conversationUuid, String filename, Path audio) {
+            this.id = id;
+            this.conversationUuid = conversationUuid;
+            this.filename = filename;
+            this.audio = audio;
+            updates.tryEmitNext(this);
+        }
+
+        private synchronized void update(Status newStatus) {
+            status = newStatus;
+            if (isFinished()) {
+                finishedAtNanos = System.nanoTime();
+            }
+            updates.tryEmitNext(this);
+            if (isFinished()) {
+                updates.tryEmitComplete();
+            }
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isFinished() {
+            return status == Status.SUCCEEDED || status == Status.FAILED;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.solocrew;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Normalises a client's audio to what the upstream expects, 16 kHz 16-bit mono PCM, and holds
+ * back silence.
+ *
+ * <p>The input format is the one declared in {@code start_streaming}; without one, the first
+ * frame is inspected: a WAV header is parsed and skipped, compressed containers (WebM, Ogg, FLAC,
+ * ID3-tagged MP3) are rejected, and anything else is taken to already be 16 kHz 16-bit mono. Samples are
+ * downmixed by averaging channels, low-pass filtered when downsampling (a one-pole filter, enough
+ * for speech recognition), and resampled by linear interpolation with the phase carried across
+ * frames. Frames need not be aligned to sample boundaries.
+ *
+ * <p>The gate compares each frame's energy with an absolute threshold and with an adaptive noise
+ * floor. It stays open for {@code hangoverMs} after the last voiced frame; keep that longer than
+ * the upstream's end-of-turn silence, or turns will not be closed.
+ *
+ * <p>After the first frame, processing does not allocate: work buffers only grow when a larger
+ * frame than any before arrives. Not thread-safe; one instance per session.
+ */
+public class AudioPreprocessor implements AudioFrameProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(AudioPreprocessor.class);
+
+    private static final int OUTPUT_RATE = AudioFormat.UPSTREAM.getSampleRate();
+    private static final int INITIAL_CAPACITY_SAMPLES = 4096;
+    private static final float NOISE_FLOOR_ADAPTATION = 0.05f;
+
+    private final boolean gateEnabled;
+    private final float thresholdDb;
+    private final float marginDb;
+    private final long hangoverSamples;
+    private final Stats stats;
+
+    private AudioFormat format;
+    private boolean unsupported;
+    private boolean passthrough;
+
+    // Bytes of an incomplete sample frame, prepended to the next frame; sized for the input format
+    private byte[] carry;
+    private int carryLength;
+
+    private ByteBuffer input = ByteBuffer.allocate(INITIAL_CAPACITY_SAMPLES * 4).order(ByteOrder.LITTLE_ENDIAN);
+    private float[] mono = new float[INITIAL_CAPACITY_SAMPLES];
+    private ByteBuffer output = ByteBuffer.allocate(INITIAL_CAPACITY_SAMPLES * 2).order(ByteOrder.LITTLE_ENDIAN);
+
+    // Resampler state
+    private double step;
+    private double position;
+    private float previousSample;
+    private boolean lowPass;
+    private float lowPassAlpha;
+    private float lowPassState;
+
+    // Gate state
+    private float noiseFloorDb = -60f;
+    private long openSamplesRemaining;
+    private volatile long lastVoicedNanos;
+
+    public AudioPreprocessor(AudioFormat declaredFormat, boolean gateEnabled, float thresholdDb, float marginDb,
+                             long hangoverMs, Stats stats) {
+        this.gateEnabled = gateEnabled;
+        this.thresholdDb = thresholdDb;
+        this.marginDb = marginDb;
+        this.hangoverSamples = hangoverMs * OUTPUT_RATE / 1000;
+        this.stats = stats;
+        if (declaredFormat != null) {
+            configure(declaredFormat);
+        }
+    }
+
+    @Override
+    public ByteBuffer process(ByteBuffer frame) {
+        stats.framesIn.increment();
+        stats.bytesIn.add(frame.remaining());
+
+        int start = frame.position();
+        if (format == null) {
+            start += detectFormat(frame);
+        }
+        if (unsupported) {
+            stats.framesUnsupported.increment();
+            return null;
+        }
+
+        if (passthrough && carryLength == 0 && ((frame.limit() - start) & 1) == 0) {
+            // Already 16 kHz 16-bit mono and sample-aligned: only the gate applies
+            int length = frame.limit() - start;
+            if (!gate(energyOfPcm16(frame, start, length), length / 2)) {
+                return null;
+            }
+            if (start == frame.position() && length == frame.remaining()) {
+                stats.bytesOut.add(length);
+                return frame;
+            }
+            return copyOut(frame, start, length);
+        }
+
+        int produced = convert(frame, start);
+        if (!gate(energyOfOutput(produced), produced)) {
+            return null;
+        }
+        output.position(0).limit(produced * 2);
+        stats.bytesOut.add(produced * 2L);
+        return output;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public boolean isUnsupported() {
+        return unsupported;
+    }
+
+    @Override
+    public long getLastVoicedNanos() {
+        return lastVoicedNanos;
+    }
+
+    private void configure(AudioFormat inputFormat) {
+        format = inputFormat;
+        carry = new byte[inputFormat.getFrameBytes()];
+        passthrough = inputFormat.equals(AudioFormat.UPSTREAM);
+        step = (double) inputFormat.getSampleRate() / OUTPUT_RATE;
+        lowPass = inputFormat.getSampleRate() > OUTPUT_RATE;
+        if (lowPass) {
+            double cutoff = 0.45 * OUTPUT_RATE;
+            lowPassAlpha = (float) (1 - Math.exp(-2 * Math.PI * cutoff / inputFormat.getSampleRate()));
+        }
+    }
+
+    /**
+     * Sets the format from the first frame and returns how many header bytes to skip.
+     */
+    private int detectFormat(ByteBuffer frame) {
+        int start = frame.position();
+        int length = frame.remaining();
+        ByteOrder order = frame.order();
+        try {
+            if (length >= 4) {
+                int magic = frame.order(ByteOrder.BIG_ENDIAN).getInt(start);
+                if (magic == 0x1A45DFA3 || magic == 0x4F676753 || magic == 0x664C6143 || (magic >>> 8) == 0x494433) {
+                    // WebM/Matroska, OggS, fLaC or ID3-tagged MP3: would need a decoder
+                    log.warn("Unsupported compressed audio from client; send raw PCM or WAV");
+                    unsupported = true;
+                    return 0;
+                }
+                if (length >= 12 && magic == 0x52494646 && frame.getInt(start + 8) == 0x57415645) { // RIFF....WAVE
+                    return parseWavHeader(frame, start, length);
+                }
+            }
+            configure(AudioFormat.UPSTREAM);
+            return 0;
+        } finally {
+            frame.order(order);
+        }
+    }
+
+    /**
+     * Reads the fmt chunk of a RIFF/WAVE header and returns the offset of the sample data.
+     */
+    private int parseWavHeader(ByteBuffer frame, int start, int length) {
+        frame.order(ByteOrder.LITTLE_ENDIAN);
+        int offset = 12;
+        AudioFormat parsed = null;
+        while (offset + 8 <= length) {
+            int chunkId = Integer.reverseBytes(frame.getInt(start + offset));
+            int chunkSize = frame.getInt(start + offset + 4);
+            if (chunkSize < 0) {
+                break;
+            }
+            if (chunkId == 0x666D7420 && offset + 8 + 16 <= length) { // "fmt "
+                int tag = frame.getShort(start + offset + 8) & 0xFFFF;
+                if (tag == 0xFFFE && chunkSize >= 26) {
+                    // WAVE_FORMAT_EXTENSIBLE: the real tag starts the sub-format GUID
+                    tag = frame.getShort(start + offset + 8 + 24) & 0xFFFF;
+                }
+                int channels = frame.getShort(start + offset + 10) & 0xFFFF;
+                int sampleRate = frame.getInt(start + offset + 12);
+                int bits = frame.getShort(start + offset + 22) & 0xFFFF;
+                try {
+                    if (tag == 1 && bits == 16) {
+                        parsed = new AudioFormat(AudioFormat.Encoding.PCM_S16LE, sampleRate, channels);
+                    } else if (tag == 3 && bits == 32) {
+                        parsed = new AudioFormat(AudioFormat.Encoding.PCM_F32LE, sampleRate, channels);
+                    }
+                } catch (IllegalArgumentException e) {
+                    log.warn("Unsupported WAV format from client: {}", e.getMessage());
+                    unsupported = true;
+                    return 0;
+                }
+            } else if (chunkId == 0x64617461) { // "data"
+                if (parsed == null) {
+                    break;
+                }
+                configure(parsed);
+                return offset + 8;
+            }
+            offset += 8 + chunkSize + (chunkSize & 1);
+        }
+        log.warn("Unsupported or truncated WAV header from client; only 16-bit and float PCM are accepted");
+        unsupported = true;
+        return 0;
+    }
+
+    /**
+     * Decodes, downmixes, filters and resamples into {@link #output}; returns the number of
+     * output samples.
+     */
+    private int convert(ByteBuffer frame, int start) {
+        int frameBytes = format.getFrameBytes();
+        int length = frame.limit() - start;
+        int available = carryLength + length;
+        int sampleFrames = available / frameBytes;
+
+        // Gather carry and frame into one little-endian buffer so samples can be read directly
+        if (input.capacity() < available) {
+            input = ByteBuffer.allocate(available).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        byte[] bytes = input.array();
+        System.arraycopy(carry, 0, bytes, 0, carryLength);
+        frame.get(start, bytes, carryLength, length);
+
+        if (mono.length < sampleFrames) {
+            mono = new float[sampleFrames];
+        }
+        int channels = format.getChannels();
+        boolean isFloat = format.getEncoding() == AudioFormat.Encoding.PCM_F32LE;
+        int index = 0;
+        for (int i = 0; i < sampleFrames; i++) {
+            float sum = 0;
+            for (int c = 0; c < channels; c++) {
+                if (isFloat) {
+                    sum += input.getFloat(index);
+                    index += 4;
+                } else {
+                    sum += input.getShort(index) / 32768f;
+                    index += 2;
+                }
+            }
+            float sample = sum / channels;
+            if (lowPass) {
+                lowPassState += lowPassAlpha * (sample - lowPassState);
+                sample = lowPassState;
+            }
+            mono[i] = sample;
+        }
+
+        // Keep the bytes of a trailing partial sample frame for next time
+        carryLength = available - index;
+        System.arraycopy(bytes, index, carry, 0, carryLength);
+
+        return resample(sampleFrames);
+    }
+
+    /**
+     * Linear interpolation from {@code mono[0..count)} into 16-bit output. {@code position} is the
+     * next output sample's place in the input, where -1 is the last sample of the previous frame.
+     */
+    private int resample(int count) {
+        if (count == 0) {
+            return 0;
+        }
+        int maxOut = (int) ((count - position) / step) + 2;
+        if (output.capacity() < maxOut * 2) {
+            output = ByteBuffer.allocate(maxOut * 2).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        output.clear();
+
+        int produced = 0;
+        double pos = position;
+        while (pos <= count - 1) {
+            int i = (int) Math.floor(pos);
+            float fraction = (float) (pos - i);
+            float s0 = i < 0 ? previousSample : mono[i];
+            float s1 = i + 1 < count ? mono[i + 1] : s0;
+            float sample = s0 + (s1 - s0) * fraction;
+            output.putShort(produced * 2, toPcm16(sample));
+            produced++;
+            pos += step;
+        }
+        position = pos - count;
+        previousSample = mono[count - 1];
+        return produced;
+    }
+
+    private static short toPcm16(float sample) {
+        float scaled = sample * 32767f;
+        if (scaled > 32767f) {
+            return Short.MAX_VALUE;
+        }
+        if (scaled < -32768f) {
+            return Short.MIN_VALUE;
+        }
+        return (short) scaled;
+    }
+
+    private ByteBuffer copyOut(ByteBuffer frame, int start, int length) {
+        if (output.capacity() < length) {
+            output = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        output.clear();
+        for (int i = 0; i < length; i++) {
+            output.put(i, frame.get(start + i));
+        }
+        output.limit(length);
+        stats.bytesOut.add(length);
+        return output;
+    }
+
+    private static double energyOfPcm16(ByteBuffer frame, int start, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i += 2) {
+            int value = (frame.get(start + i) & 0xFF) | frame.get(start + i + 1) << 8;
+            sum += (double) value * value;
+        }
+        return length == 0 ? 0 : sum / (length / 2) / (32768.0 * 32768.0);
+    }
+
+    private double energyOfOutput(int samples) {
+        double sum = 0;
+        for (int i = 0; i < samples; i++) {
+            int value = output.getShort(i * 2);
+            sum += (double) value * value;
+        }
+        return samples == 0 ? 0 : sum / samples / (32768.0 * 32768.0);
+    }
+
+    /**
+     * Decides whether a frame of the given mean-square energy goes upstream. Voice activity is
+     * tracked even with the gate disabled, for {@link #getLastVoicedNanos()}; the flag only
+     * decides whether silent frames are dropped.
+     */
+    private boolean gate(double meanSquare, int samples) {
+        float levelDb = (float) (10 * Math.log10(meanSquare + 1e-12));
+        boolean voiced = levelDb > thresholdDb && levelDb > noiseFloorDb + marginDb;
+        if (voiced) {
+            openSamplesRemaining = hangoverSamples;
+            lastVoicedNanos = System.nanoTime();
+        } else {
+            noiseFloorDb += NOISE_FLOOR_ADAPTATION * (levelDb - noiseFloorDb);
+            openSamplesRemaining -= samples;
+        }
+        if (!gateEnabled || voiced || openSamplesRemaining > 0) {
+            stats.framesForwarded.increment();
+            return true;
+        }
+        stats.framesSuppressed.increment();
+        stats.suppressedSamples.add(samples);
+        return false;
+    }
+
+    /**
+     * Counters shared by all sessions' preprocessors.
+     */
+    public static final class Stats {
+        final LongAdder framesIn = new LongAdder();
+        final LongAdder framesForwarded = new LongAdder();
+        final LongAdder framesSuppressed = new LongAdder();
+        final LongAdder framesUnsupported = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder suppressedSamples = new LongAdder();
+
+        public long getFramesIn() {
+            return framesIn.sum();
+        }
+
+        public long getFramesForwarded() {
+            return framesForwarded.sum();
+        }
+
+        public long getFramesSuppressed() {
+            return framesSuppressed.sum();
+        }
+
+        public long getFramesUnsupported() {
+            return framesUnsupported.sum();
+        }
+
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        public long getBytesOut() {
+            return bytesOut.sum();
+        }
+
+        public long getSuppressedAudioMs() {
+            return suppressedSamples.sum() * 1000 / OUTPUT_RATE;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.solocrew;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the per-session {@link AudioFrameProcessor} that sits between the client's audio and
+ * the upstream send queue, configured from {@code audio.preprocess.*}.
+ */
+@Component
+public class AudioPreprocessorFactory implements MeterBinder {
+
+    @Value("${audio.preprocess.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audio.preprocess.vad.enabled:false}")
+    private boolean vadEnabled;
+
+    @Value("${audio.preprocess.vad.threshold-db:-50}")
+    private float vadThresholdDb;
+
+    @Value("${audio.preprocess.vad.margin-db:10}")
+    private float vadMarginDb;
+
+    @Value("${audio.preprocess.vad.hangover-ms:2000}")
+    private long vadHangoverMs;
+
+    private final AudioPreprocessor.Stats stats = new AudioPreprocessor.Stats();
+
+    /**
+     * @param declaredFormat the format the client announced, or null to detect it from the audio
+     */
+    public AudioFrameProcessor create(AudioFormat declaredFormat) {
+        if (!enabled) {
+            return AudioFrameProcessor.PASSTHROUGH;
+        }
+        return new AudioPreprocessor(declaredFormat, vadEnabled, vadThresholdDb, vadMarginDb, vadHangoverMs, stats);
+    }
+
+    /**
+     * Preprocessing meters, all sessions together: {@code voice.preprocess.frames} (outcome =
+     * forwarded | suppressed | unsupported), {@code voice.preprocess.bytes} (stage = in | out) and
+     * the audio the gate kept back.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("voice.preprocess.frames", stats, AudioPreprocessor.Stats::getFramesForwarded)
+                .tag("outcome", "forwarded")
+                .register(registry);
+        FunctionCounter.builder("voice.preprocess.frames", stats, AudioPreprocessor.Stats::getFramesSuppressed)
+                .tag("outcome", "suppressed")
+                .register(registry);
+        FunctionCounter.builder("voice.preprocess.frames", stats, AudioPreprocessor.Stats::getFramesUnsupported)
+                .tag("outcome", "unsupported")
+                .register(registry);
+        FunctionCounter.builder("voice.preprocess.bytes", stats, AudioPreprocessor.Stats::getBytesIn)
+                .tag("stage", "in")
+                .register(registry);
+        FunctionCounter.builder("voice.preprocess.bytes", stats, AudioPreprocessor.Stats::getBytesOut)
+                .tag("stage", "out")
+                .register(registry);
+        FunctionCounter.builder("voice.preprocess.suppressed.audio", stats, s -> s.getSuppressedAudioMs() / 1000.0)
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
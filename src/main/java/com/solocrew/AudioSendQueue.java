@@ -0,0 +1,239 @@
+package com.solocrew;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded outbound audio queue for one upstream WebSocket session.
+ *
+ * <p>Callers enqueue and return immediately; a task on the shared sender executor drains the
+ * queue and is the only thread that ever calls {@link WebSocketSession#sendMessage}, so a slow
+ * upstream stalls its own queue rather than the caller's read loop. At most one drain task per
+ * queue is in flight at a time.
+ */
+public class AudioSendQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(AudioSendQueue.class);
+
+    public enum OverflowPolicy {
+        /** Discard the oldest queued frame to make room for the new one. */
+        DROP_OLDEST,
+        /** Append the new frame to the last queued message if it fits, otherwise drop the oldest. */
+        COALESCE,
+        /** Give up on the upstream session and close it. */
+        DISCONNECT
+    }
+
+    private final WebSocketSession webSocketSession;
+    private final AudioBufferPool bufferPool;
+    private final Executor senderExecutor;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Runnable onOverflowDisconnect;
+    private final Stats stats;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<ByteBuffer> queue;
+    private boolean draining;
+    private boolean closed;
+
+    /**
+     * @param stats counters shared with the other sessions' queues
+     */
+    public AudioSendQueue(WebSocketSession webSocketSession, AudioBufferPool bufferPool, Executor senderExecutor,
+                          int capacity, OverflowPolicy overflowPolicy, Runnable onOverflowDisconnect, Stats stats) {
+        this.webSocketSession = webSocketSession;
+        this.bufferPool = bufferPool;
+        this.senderExecutor = senderExecutor;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.onOverflowDisconnect = onOverflowDisconnect;
+        this.stats = stats;
+        this.queue = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Copies the frame's remaining bytes into a pooled buffer and schedules it for sending.
+     * The caller's buffer is not retained.
+     *
+     * @return false if the frame was not accepted (queue closed, or closed by this overflow)
+     */
+    public boolean offer(ByteBuffer frame) {
+        return enqueue(frame, false);
+    }
+
+    /**
+     * Like {@link #offer}, but takes ownership of a flipped buffer from this queue's pool rather
+     * than copying it. The buffer goes back to the pool if it is not accepted.
+     */
+    public boolean offerPooled(ByteBuffer buffer) {
+        return enqueue(buffer, true);
+    }
+
+    private boolean enqueue(ByteBuffer frame, boolean pooled) {
+        boolean startDrain;
+        synchronized (lock) {
+            if (closed) {
+                releaseIfPooled(frame, pooled);
+                return false;
+            }
+            if (queue.size() >= capacity) {
+                switch (overflowPolicy) {
+                    case DISCONNECT:
+                        releaseIfPooled(frame, pooled);
+                        closeLocked();
+                        senderExecutor.execute(this::disconnect);
+                        return false;
+                    case COALESCE:
+                        if (appendToTail(frame)) {
+                            releaseIfPooled(frame, pooled);
+                            stats.coalescedFrames.increment();
+                            stats.enqueuedFrames.increment();
+                            return true;
+                        }
+                        dropOldest();
+                        break;
+                    default:
+                        dropOldest();
+                }
+            }
+            ByteBuffer copy = frame;
+            if (!pooled) {
+                copy = bufferPool.acquire(frame.remaining());
+                copy.put(frame).flip();
+            }
+            queue.addLast(copy);
+            stats.enqueuedFrames.increment();
+            startDrain = !draining;
+            draining = true;
+        }
+        if (startDrain) {
+            senderExecutor.execute(this::drain);
+        }
+        return true;
+    }
+
+    private boolean appendToTail(ByteBuffer frame) {
+        ByteBuffer tail = queue.peekLast();
+        if (tail == null || tail.capacity() - tail.limit() < frame.remaining()) {
+            return false;
+        }
+        int end = tail.limit();
+        tail.limit(end + frame.remaining());
+        tail.position(end);
+        tail.put(frame);
+        tail.position(0);
+        return true;
+    }
+
+    private void releaseIfPooled(ByteBuffer buffer, boolean pooled) {
+        if (pooled) {
+            bufferPool.release(buffer);
+        }
+    }
+
+    private void dropOldest() {
+        ByteBuffer oldest = queue.pollFirst();
+        if (oldest != null) {
+            bufferPool.release(oldest);
+            stats.droppedFrames.increment();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            ByteBuffer next;
+            synchronized (lock) {
+                next = queue.pollFirst();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                if (webSocketSession.isOpen()) {
+                    webSocketSession.sendMessage(new BinaryMessage(next, true));
+                    stats.sentMessages.increment();
+                }
+            } catch (Exception e) {
+                stats.failedSends.increment();
+                log.warn("Error sending audio data: {}", e.getMessage());
+            } finally {
+                bufferPool.release(next);
+            }
+        }
+    }
+
+    private void disconnect() {
+        log.atWarn().addKeyValue("session", webSocketSession.getId()).log("Audio send queue overflow, closing upstream session");
+        try {
+            webSocketSession.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception e) {
+            log.warn("Error closing upstream session after overflow: {}", e.getMessage());
+        }
+        if (onOverflowDisconnect != null) {
+            onOverflowDisconnect.run();
+        }
+    }
+
+    /** Drops anything still queued and rejects further frames. */
+    public void close() {
+        synchronized (lock) {
+            closeLocked();
+        }
+    }
+
+    private void closeLocked() {
+        closed = true;
+        ByteBuffer buffer;
+        while ((buffer = queue.pollFirst()) != null) {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /** Frames currently waiting to be sent. */
+    public int getDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Counters shared by all sessions' queues.
+     */
+    public static final class Stats {
+        final LongAdder enqueuedFrames = new LongAdder();
+        final LongAdder sentMessages = new LongAdder();
+        final LongAdder droppedFrames = new LongAdder();
+        final LongAdder coalescedFrames = new LongAdder();
+        final LongAdder failedSends = new LongAdder();
+
+        public long getEnqueuedFrames() {
+            return enqueuedFrames.sum();
+        }
+
+        public long getSentMessages() {
+            return sentMessages.sum();
+        }
+
+        public long getDroppedFrames() {
+            return droppedFrames.sum();
+        }
+
+        public long getCoalescedFrames() {
+            return coalescedFrames.sum();
+        }
+
+        public long getFailedSends() {
+            return failedSends.sum();
+        }
+    }
+}
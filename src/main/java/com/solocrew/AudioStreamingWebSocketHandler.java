@@ -2,38 +2,107 @@ package com.solocrew;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
+import jakarta.annotation.PostConstruct;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 public class AudioStreamingWebSocketHandler implements WebSocketHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(AudioStreamingWebSocketHandler.class);
+    /** Transcripts and replies; debug only, they hold what the user said. */
+    private static final Logger payloadLog = LoggerFactory.getLogger("com.solocrew.payload.websocket");
+
     @Autowired
     private AssemblyAIStreamingServiceV2 assemblyAIStreamingService;
 
     @Autowired
     private OpenAIChatService openAIChatService;
 
-    private final ObjectMapper objectMapper;
+    @Autowired
+    private TurnProcessingExecutor turnProcessingExecutor;
+
+    @Autowired
+    private OpenAITTSService openAITTSService;
+
+    @Autowired
+    private ContextWindowManager contextWindowManager;
+
+    @Autowired
+    private ConversationStore conversationStore;
+
+    @Autowired
+    private AudioPreprocessorFactory audioPreprocessorFactory;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${openai.chat.streaming.enabled:false}")
+    private boolean streamReplies;
+
+    @Value("${openai.tts.pipelined.enabled:false}")
+    private boolean pipelinedSpeech;
+
+    @Value("${assemblyai.streaming.partials.enabled:false}")
+    private boolean forwardPartials;
+
+    @Value("${openai.chat.speculative.enabled:false}")
+    private boolean speculate;
+
+    @Value("${openai.chat.speculative.min-similarity:0.8}")
+    private double speculationMinSimilarity;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private final ConcurrentHashMap<String, WebSocketSession> clientSessions;
     private final ConcurrentHashMap<String, AssemblyAIStreamingServiceV2.StreamingSessionV2> assemblyAISessions;
-    private final ConcurrentHashMap<String, ConversationSession> conversations;
+    private final ConcurrentHashMap<String, AudioFrameProcessor> audioProcessors;
+    private final ConcurrentHashMap<String, SpeculativeReply> speculativeReplies;
+
+    // Client sends come from inbound, upstream-callback and turn-worker threads
+    private static final int CLIENT_SEND_TIME_LIMIT_MS = 10000;
+    private static final int CLIENT_SEND_BUFFER_LIMIT = 512 * 1024;
+    private static final int TTS_PIPELINE_DEPTH = 2;
 
     public AudioStreamingWebSocketHandler() {
-        this.objectMapper = new ObjectMapper();
         this.clientSessions = new ConcurrentHashMap<>();
         this.assemblyAISessions = new ConcurrentHashMap<>();
-        this.conversations = new ConcurrentHashMap<>();
+        this.audioProcessors = new ConcurrentHashMap<>();
+        this.speculativeReplies = new ConcurrentHashMap<>();
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        pipelineMetrics.gaugeActiveSessions("client", clientSessions);
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        System.out.println("WebSocket connection established: " + session.getId());
-        clientSessions.put(session.getId(), session);
+        log.atInfo().addKeyValue("session", session.getId()).log("Client connected");
+        clientSessions.put(session.getId(),
+                new ConcurrentWebSocketSessionDecorator(session, CLIENT_SEND_TIME_LIMIT_MS, CLIENT_SEND_BUFFER_LIMIT));
         
         // Send connection established message
         sendMessage(session, createJsonResponse("connection_established", "WebSocket connection established", null));
@@ -56,6 +125,7 @@ public class AudioStreamingWebSocketHandler implements WebSocketHandler {
             switch (type) {
                 case "start_streaming":
                     String conversationUuid = jsonMessage.get("conversation_uuid").asText();
+                    audioProcessors.put(session.getId(), audioPreprocessorFactory.create(AudioFormat.fromJson(jsonMessage.get("audio_format"))));
                     startStreaming(session, conversationUuid);
                     break;
                     
@@ -64,11 +134,11 @@ public class AudioStreamingWebSocketHandler implements WebSocketHandler {
                     break;
                     
                 default:
-                    System.out.println("Unknown message type: " + type);
+                    log.atWarn().addKeyValue("session", session.getId()).log("Unknown client message type: {}", type);
             }
             
         } catch (Exception e) {
-            System.err.println("Error handling text message: " + e.getMessage());
+            log.atWarn().addKeyValue("session", session.getId()).log("Error handling client message: {}", e.getMessage());
             sendMessage(session, createJsonResponse("error", "Failed to process message: " + e.getMessage(), null));
         }
     }
@@ -77,100 +147,333 @@ public class AudioStreamingWebSocketHandler implements WebSocketHandler {
         AssemblyAIStreamingServiceV2.StreamingSessionV2 assemblySession = assemblyAISessions.get(session.getId());
         
         if (assemblySession != null) {
-            // Forward audio data to AssemblyAI
-            ByteBuffer audioData = message.getPayload();
-            byte[] audioBytes = new byte[audioData.remaining()];
-            audioData.get(audioBytes);
-            
-            assemblySession.sendAudioData(audioBytes);
-//            System.out.println("Forwarded " + audioBytes.length + " bytes to AssemblyAI for session: " + session.getId());
+            // Normalise to 16 kHz mono PCM and drop silence; buffers are handed on without a byte[] copy
+            ByteBuffer payload = message.getPayload();
+            pipelineMetrics.recordAudioReceived(payload.remaining());
+            ByteBuffer audio = audioProcessors.getOrDefault(session.getId(), AudioFrameProcessor.PASSTHROUGH)
+                    .process(payload);
+            if (audio != null) {
+                pipelineMetrics.recordAudioForwarded(audio.remaining());
+                assemblySession.sendAudioData(audio);
+            }
         } else {
-            System.err.println("No AssemblyAI session found for WebSocket session: " + session.getId());
+            log.atDebug().addKeyValue("session", session.getId()).log("Audio received without an upstream session");
         }
     }
 
     private void startStreaming(WebSocketSession session, String conversationUuid) {
-        System.out.println("Starting streaming for session: " + session.getId() + ", conversation: " + conversationUuid);
+        log.atInfo().addKeyValue("session", session.getId()).addKeyValue("conversation", conversationUuid).log("Starting streaming");
         
         // Get or create conversation session
-        ConversationSession conversation = conversations.computeIfAbsent(conversationUuid, ConversationSession::new);
+        conversationStore.getOrCreate(conversationUuid);
         
         // Create AssemblyAI streaming session
         assemblyAIStreamingService.createStreamingSession(session.getId(), new AssemblyAIStreamingServiceV2.TranscriptCallback() {
             @Override
             public void onTranscript(String text, boolean isFinal) {
-                if (isFinal) {
-                    handleFinalTranscript(session, conversation, text);
+                if (!isFinal) {
+                    sendPartialTranscript(session, text, false, conversationUuid);
+                    return;
+                }
+                long finalReceivedNanos = System.nanoTime();
+                AudioFrameProcessor processor = audioProcessors.get(session.getId());
+                long lastVoicedNanos = processor != null ? processor.getLastVoicedNanos() : 0;
+                if (lastVoicedNanos > 0) {
+                    pipelineMetrics.recordSpeechEndToFinal(finalReceivedNanos - lastVoicedNanos);
+                }
+                SpeculativeReply speculation = speculativeReplies.remove(session.getId());
+                // Never block the upstream read loop on the LLM, nor on restoring the conversation
+                turnProcessingExecutor.submitAsync(conversationUuid, () -> {
+                            // Look the conversation up per turn: this marks it as active, and
+                            // recreates it if it was evicted while the stream sat idle
+                            ConversationSession conversation = conversationStore.getOrCreate(conversationUuid);
+                            return handleFinalTranscript(session, conversation, text, finalReceivedNanos, speculation);
+                        })
+                    .exceptionally(throwable -> {
+                        if (speculation != null) {
+                            speculation.cancel();
+                        }
+                        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                        pipelineMetrics.recordTurn("websocket",
+                                cause instanceof RejectedExecutionException ? "rejected" : "error",
+                                System.nanoTime() - finalReceivedNanos);
+                        log.atWarn().addKeyValue("session", session.getId()).log("Failed to schedule transcript processing: {}", throwable.getMessage());
+                        try {
+                            sendMessage(session, createJsonResponse("error", "Server busy, please try again", conversationUuid));
+                        } catch (Exception e) {
+                            log.warn("Failed to send error message: {}", e.getMessage());
+                        }
+                        return null;
+                    });
+            }
+
+            @Override
+            public void onEndOfTurn(String text) {
+                sendPartialTranscript(session, text, true, conversationUuid);
+                // Only when no earlier turn is pending, whose reply would change the context
+                if (speculate && turnProcessingExecutor.isIdle(conversationUuid)) {
+                    SpeculativeReply previous = speculativeReplies.put(session.getId(),
+                            new SpeculativeReply(conversationUuid, text));
+                    if (previous != null) {
+                        previous.cancel();
+                    }
                 }
             }
 
             @Override
             public void onClose() {
-                System.out.println("AssemblyAI session closed for: " + session.getId());
+                log.atDebug().addKeyValue("session", session.getId()).log("Upstream session closed");
             }
 
             @Override
             public void onError(Exception ex) {
-                System.err.println("AssemblyAI error for session " + session.getId() + ": " + ex.getMessage());
+                log.atWarn().addKeyValue("session", session.getId()).log("Upstream error: {}", ex.getMessage());
                 try {
                     sendMessage(session, createJsonResponse("error", "AssemblyAI error: " + ex.getMessage(), null));
                 } catch (Exception e) {
-                    System.err.println("Failed to send error message to client: " + e.getMessage());
+                    log.warn("Failed to send error message to client: {}", e.getMessage());
                 }
             }
         }).thenAccept(assemblySession -> {
-            assemblyAISessions.put(session.getId(), assemblySession);
+            AssemblyAIStreamingServiceV2.StreamingSessionV2 previous = assemblyAISessions.put(session.getId(), assemblySession);
+            if (previous != null) {
+                // A repeated start_streaming replaces the earlier upstream session
+                previous.close();
+            }
+            // Checked after publishing, so a cleanupSession that ran before the put is not missed
+            if (!session.isOpen()) {
+                // Client went away while the upstream handshake was completing
+                assemblyAISessions.remove(session.getId(), assemblySession);
+                assemblySession.close();
+                return;
+            }
             try {
                 sendMessage(session, createJsonResponse("streaming_started", "Audio streaming started", conversationUuid));
             } catch (Exception e) {
-                System.err.println("Failed to send streaming started message: " + e.getMessage());
+                log.warn("Failed to send streaming started message: {}", e.getMessage());
             }
         }).exceptionally(throwable -> {
-            System.err.println("Failed to create AssemblyAI session: " + throwable.getMessage());
+            if (throwable instanceof CancellationException || throwable.getCause() instanceof CancellationException) {
+                return null;
+            }
+            log.atWarn().addKeyValue("session", session.getId()).log("Failed to create upstream session: {}", throwable.getMessage());
             try {
                 sendMessage(session, createJsonResponse("error", "Failed to start streaming: " + throwable.getMessage(), null));
             } catch (Exception e) {
-                System.err.println("Failed to send error message: " + e.getMessage());
+                log.warn("Failed to send error message: {}", e.getMessage());
             }
             return null;
         });
     }
 
     private void stopStreaming(WebSocketSession session) {
-        System.out.println("Stopping streaming for session: " + session.getId());
+        log.atInfo().addKeyValue("session", session.getId()).log("Stopping streaming");
         
         AssemblyAIStreamingServiceV2.StreamingSessionV2 assemblySession = assemblyAISessions.remove(session.getId());
         if (assemblySession != null) {
             assemblySession.close();
         }
+        audioProcessors.remove(session.getId());
+        cancelSpeculativeReply(session.getId());
         
         try {
             sendMessage(session, createJsonResponse("streaming_stopped", "Audio streaming stopped", null));
         } catch (Exception e) {
-            System.err.println("Failed to send streaming stopped message: " + e.getMessage());
+            log.warn("Failed to send streaming stopped message: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @param speculation reply requested on the unformatted end of turn, or null. Used if the
+     *                    conversation has not changed since and the formatted text is close enough,
+     *                    otherwise cancelled.
+     */
+    private CompletableFuture<Void> handleFinalTranscript(WebSocketSession session, ConversationSession conversation,
+                                                          String transcriptText, long finalReceivedNanos,
+                                                          SpeculativeReply speculation) {
+        log.atDebug().addKeyValue("session", session.getId()).addKeyValue("conversation", conversation.getUuid())
+                .log("Processing final transcript");
+        payloadLog.atDebug().addKeyValue("conversation", conversation.getUuid()).log("Final transcript: {}", transcriptText);
+
+        // Checked before the message is added, which changes the history
+        boolean reuseSpeculation = speculation != null && speculation.matches(conversation, transcriptText);
+        
+        // Add user message to conversation
+        conversation.addMessage(new ConversationMessage("user", transcriptText));
+        
+        // Generate empathy response using OpenAI, without holding a thread while it is in flight.
+        // In streaming mode the reply is pushed as reply_delta messages while it is generated.
+        Flux<OpenAIChatService.EmpathyResponseEvent> responseEvents;
+        if (reuseSpeculation) {
+            pipelineMetrics.recordSpeculativeReply("reused");
+            responseEvents = speculation.events();
+        } else {
+            if (speculation != null) {
+                pipelineMetrics.recordSpeculativeReply("discarded");
+                speculation.cancel();
+            }
+            responseEvents = requestResponse(contextWindowManager.buildContext(conversation));
+        }
+        SpeechPipeline speech = pipelinedSpeech ? new SpeechPipeline(session, conversation) : null;
+        AtomicBoolean failed = new AtomicBoolean();
+        Mono<Void> reply = responseEvents
+                // Client sends may block briefly, keep them off the HTTP client's event loop
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(event -> {
+                    if (event.isComplete()) {
+                        sendEmpathyResponse(session, conversation, transcriptText, event.getResponse());
+                    } else {
+                        sendReplyDelta(session, conversation, event.getReplyDelta());
+                    }
+                    if (speech != null) {
+                        speech.accept(event);
+                    }
+                })
+                .doOnError(e -> {
+                    failed.set(true);
+                    sendTranscriptError(session, e);
+                    if (speech != null) {
+                        speech.cancel();
+                    }
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+        return (speech != null ? Mono.when(reply, speech.run()) : reply)
+                .doFinally(signal -> pipelineMetrics.recordTurn("websocket",
+                        signal == SignalType.CANCEL ? "cancelled" : failed.get() ? "error" : "success",
+                        System.nanoTime() - finalReceivedNanos))
+                .toFuture();
+    }
+
+    private Flux<OpenAIChatService.EmpathyResponseEvent> requestResponse(List<ConversationMessage> context) {
+        return streamReplies
+                ? openAIChatService.streamEmpathyResponse(context)
+                : openAIChatService.generateEmpathyResponseAsync(context)
+                        .map(OpenAIChatService.EmpathyResponseEvent::complete)
+                        .flux();
+    }
+
+    /**
+     * A reply requested as soon as the upstream reports the end of a turn, for the unformatted
+     * text, so it is already under way when the formatted transcript arrives. Its events are
+     * buffered until the turn takes them over with {@link #events}, or the request is cancelled.
+     */
+    private class SpeculativeReply {
+        private final String transcript;
+        // Set once the conversation has been looked up, off the upstream read loop
+        private volatile ConversationSession.History history;
+        private final Sinks.Many<OpenAIChatService.EmpathyResponseEvent> events = Sinks.many().replay().all();
+        private final Disposable request;
+
+        SpeculativeReply(String conversationUuid, String transcript) {
+            this.transcript = transcript;
+            this.request = Mono.fromCallable(() -> conversationStore.getOrCreate(conversationUuid))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapMany(conversation -> {
+                        history = conversation.getHistory();
+                        return requestResponse(contextWindowManager.buildContext(
+                                history.withMessage(new ConversationMessage("user", transcript))));
+                    })
+                    .subscribe(events::tryEmitNext, events::tryEmitError, events::tryEmitComplete);
+        }
+
+        /**
+         * Whether the reply still fits: the conversation is unchanged (histories are replaced on
+         * every change) and the final text differs at most by formatting and a few words. False
+         * if the request had not got as far as reading the history.
+         */
+        boolean matches(ConversationSession conversation, String finalTranscript) {
+            ConversationSession.History history = this.history;
+            return history != null && conversation.getHistory() == history
+                    && TranscriptSimilarity.similarity(transcript, finalTranscript) >= speculationMinSimilarity;
+        }
+
+        Flux<OpenAIChatService.EmpathyResponseEvent> events() {
+            return events.asFlux();
+        }
+
+        void cancel() {
+            request.dispose();
+        }
+    }
+
+    private void cancelSpeculativeReply(String sessionId) {
+        SpeculativeReply speculation = speculativeReplies.remove(sessionId);
+        if (speculation != null) {
+            pipelineMetrics.recordSpeculativeReply("cancelled");
+            speculation.cancel();
+        }
+    }
+
+    /**
+     * Speaks a reply sentence by sentence while it is still being generated. Each finished
+     * sentence goes to TTS right away, up to {@link #TTS_PIPELINE_DEPTH} syntheses overlap, and
+     * the resulting MP3 segments are sent to the client as binary frames in sentence order,
+     * followed by a {@code reply_audio_end} message.
+     */
+    private class SpeechPipeline {
+        private final WebSocketSession session;
+        private final ConversationSession conversation;
+        private final SentenceSplitter splitter = new SentenceSplitter();
+        private final Sinks.Many<String> sentences = Sinks.many().unicast().onBackpressureBuffer();
+        private boolean sawDelta;
+
+        SpeechPipeline(WebSocketSession session, ConversationSession conversation) {
+            this.session = session;
+            this.conversation = conversation;
+        }
+
+        /** Called for every response event, always from the same (serialized) pipeline thread. */
+        void accept(OpenAIChatService.EmpathyResponseEvent event) {
+            if (!event.isComplete()) {
+                sawDelta = true;
+                splitter.feed(event.getReplyDelta()).forEach(sentences::tryEmitNext);
+                return;
+            }
+            // Without deltas (non-streaming mode, or the fallback reply) speak the final text
+            List<String> rest = sawDelta
+                    ? List.of(splitter.flush())
+                    : concat(splitter.feed(event.getResponse().getReply()), splitter.flush());
+            rest.stream().filter(sentence -> !sentence.isEmpty()).forEach(sentences::tryEmitNext);
+            sentences.tryEmitComplete();
+        }
+
+        void cancel() {
+            sentences.tryEmitComplete();
+        }
+
+        Mono<Void> run() {
+            return sentences.asFlux()
+                    .flatMapSequential(openAITTSService::generateSpeechAsync, TTS_PIPELINE_DEPTH)
+                    .publishOn(Schedulers.boundedElastic())
+                    .doOnNext(audio -> sendBinary(session, audio))
+                    .then(Mono.fromRunnable(() -> {
+                        try {
+                            sendMessage(session, createJsonResponse("reply_audio_end", "Reply audio complete", conversation.getUuid()));
+                        } catch (Exception e) {
+                            log.warn("Failed to send reply audio end message: {}", e.getMessage());
+                        }
+                    }))
+                    .then()
+                    .onErrorResume(e -> {
+                        log.atWarn().addKeyValue("session", session.getId()).log("Pipelined speech failed: {}", e.getMessage());
+                        return Mono.empty();
+                    });
+        }
+
+        private List<String> concat(List<String> first, String last) {
+            List<String> all = new ArrayList<>(first);
+            all.add(last);
+            return all;
         }
     }
 
-    private void handleFinalTranscript(WebSocketSession session, ConversationSession conversation, String transcriptText) {
+    private void sendEmpathyResponse(WebSocketSession session, ConversationSession conversation, String transcriptText,
+                                     OpenAIChatService.EmpathyResponse empathyResponse) {
         try {
-            System.out.println("=== WEBSOCKET TRANSCRIPT PROCESSING ===");
-            System.out.println("Session ID: " + session.getId());
-            System.out.println("Conversation UUID: " + conversation.getUuid());
-            System.out.println("Final transcript: " + transcriptText);
-            System.out.println("=======================================");
-            
-            // Add user message to conversation
-            conversation.addMessage(new ConversationMessage("user", transcriptText));
-            System.out.println("Added user message to conversation");
-            
-            // Generate empathy response using OpenAI
-            System.out.println("Calling OpenAI for empathy response...");
-            OpenAIChatService.EmpathyResponse empathyResponse = openAIChatService.generateEmpathyResponse(conversation.getMessages());
-            System.out.println("Received empathy response from OpenAI");
-            
             // Add assistant response to conversation
             conversation.addMessage(new ConversationMessage("assistant", empathyResponse.getReply()));
-            System.out.println("Added assistant response to conversation");
+            contextWindowManager.compactIfNeeded(conversation);
             
             // Check if response indicates distress and update counter
             boolean needsHumanIntervention = empathyResponse.isHumanInterventionNeeded() || conversation.needsHumanIntervention();
@@ -183,35 +486,53 @@ public class AudioStreamingWebSocketHandler implements WebSocketHandler {
                 conversation.getUuid()
             );
             
-            System.out.println("=== SENDING TO CLIENT ===");
-            System.out.println("Response JSON: " + responseJson);
-            System.out.println("========================");
-            
+            payloadLog.atDebug().addKeyValue("conversation", conversation.getUuid()).log("Transcript response: {}", responseJson);
             sendMessage(session, responseJson);
-            System.out.println("Response sent to client successfully");
+            log.atDebug().addKeyValue("session", session.getId()).addKeyValue("conversation", conversation.getUuid())
+                    .log("Transcript response sent");
             
         } catch (Exception e) {
-            System.err.println("=== ERROR PROCESSING TRANSCRIPT ===");
-            System.err.println("Error: " + e.getMessage());
-            e.printStackTrace();
-            System.err.println("==================================");
-            try {
-                sendMessage(session, createJsonResponse("error", "Failed to process transcript: " + e.getMessage(), null));
-            } catch (Exception ex) {
-                System.err.println("Failed to send error message: " + ex.getMessage());
-            }
+            sendTranscriptError(session, e);
+        }
+    }
+
+    private void sendPartialTranscript(WebSocketSession session, String text, boolean endOfTurn, String conversationUuid) {
+        if (!forwardPartials) {
+            return;
+        }
+        try {
+            sendMessage(session, createPartialTranscriptResponse(text, endOfTurn, conversationUuid));
+        } catch (Exception e) {
+            log.warn("Failed to send partial transcript: {}", e.getMessage());
+        }
+    }
+
+    private void sendReplyDelta(WebSocketSession session, ConversationSession conversation, String delta) {
+        try {
+            sendMessage(session, createReplyDeltaResponse(delta, conversation.getUuid()));
+        } catch (Exception e) {
+            log.warn("Failed to send reply delta: {}", e.getMessage());
+        }
+    }
+
+    private void sendTranscriptError(WebSocketSession session, Throwable e) {
+        log.atError().addKeyValue("session", session.getId()).setCause(e).log("Error processing transcript");
+        try {
+            sendMessage(session, createJsonResponse("error", "Failed to process transcript: " + e.getMessage(), null));
+        } catch (Exception ex) {
+            log.warn("Failed to send error message: {}", ex.getMessage());
         }
     }
 
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
-        System.err.println("WebSocket transport error for session " + session.getId() + ": " + exception.getMessage());
+        log.atWarn().addKeyValue("session", session.getId()).log("Client transport error: {}", exception.getMessage());
         cleanupSession(session);
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
-        System.out.println("WebSocket connection closed for session " + session.getId() + ": " + closeStatus.toString());
+        log.atInfo().addKeyValue("session", session.getId()).log("Client disconnected: {}", closeStatus);
         cleanupSession(session);
     }
 
@@ -222,6 +543,9 @@ public class AudioStreamingWebSocketHandler implements WebSocketHandler {
 
     private void cleanupSession(WebSocketSession session) {
         clientSessions.remove(session.getId());
+        audioProcessors.remove(session.getId());
+        cancelSpeculativeReply(session.getId());
+        assemblyAIStreamingService.cancelStreamingSession(session.getId());
         
         // Close AssemblyAI session
         AssemblyAIStreamingServiceV2.StreamingSessionV2 assemblySession = assemblyAISessions.remove(session.getId());
@@ -230,22 +554,34 @@ public class AudioStreamingWebSocketHandler implements WebSocketHandler {
         }
     }
 
+    private void sendBinary(WebSocketSession session, byte[] data) {
+        WebSocketSession target = clientSessions.getOrDefault(session.getId(), session);
+        if (target.isOpen()) {
+            try {
+                target.sendMessage(new BinaryMessage(data));
+            } catch (Exception e) {
+                log.warn("Failed to send audio to client: {}", e.getMessage());
+            }
+        }
+    }
+
     private void sendMessage(WebSocketSession session, String message) throws Exception {
-        if (session.isOpen()) {
-            session.sendMessage(new TextMessage(message));
+        WebSocketSession target = clientSessions.getOrDefault(session.getId(), session);
+        if (target.isOpen()) {
+            target.sendMessage(new TextMessage(message));
         }
     }
 
-    private String createJsonResponse(String type, String message, String conversationUuid) {
+    String createJsonResponse(String type, String message, String conversationUuid) {
         try {
             return objectMapper.writeValueAsString(new WebSocketResponse(type, message, conversationUuid));
         } catch (Exception e) {
-            System.err.println("Failed to create JSON response: " + e.getMessage());
+            log.error("Failed to create JSON response: {}", e.getMessage());
             return "{\"type\":\"error\",\"message\":\"Failed to create response\"}";
         }
     }
 
-    private String createTranscriptResponse(String transcript, String reply, boolean needsHumanIntervention, String conversationUuid) {
+    String createTranscriptResponse(String transcript, String reply, boolean needsHumanIntervention, String conversationUuid) {
         try {
             return objectMapper.writeValueAsString(new TranscriptResponse(
                 "transcript", 
@@ -256,11 +592,40 @@ public class AudioStreamingWebSocketHandler implements WebSocketHandler {
                 needsHumanIntervention
             ));
         } catch (Exception e) {
-            System.err.println("Failed to create transcript response: " + e.getMessage());
+            log.error("Failed to create transcript response: {}", e.getMessage());
             return "{\"type\":\"error\",\"message\":\"Failed to create transcript response\"}";
         }
     }
 
+    private String createReplyDeltaResponse(String delta, String conversationUuid) {
+        try {
+            return objectMapper.writeValueAsString(new ReplyDeltaResponse(
+                "reply_delta",
+                "Reply in progress",
+                conversationUuid,
+                delta
+            ));
+        } catch (Exception e) {
+            log.error("Failed to create reply delta response: {}", e.getMessage());
+            return "{\"type\":\"error\",\"message\":\"Failed to create reply delta response\"}";
+        }
+    }
+
+    private String createPartialTranscriptResponse(String transcript, boolean endOfTurn, String conversationUuid) {
+        try {
+            return objectMapper.writeValueAsString(new PartialTranscriptResponse(
+                "partial_transcript",
+                "Transcript in progress",
+                conversationUuid,
+                transcript,
+                endOfTurn
+            ));
+        } catch (Exception e) {
+            log.error("Failed to create partial transcript response: {}", e.getMessage());
+            return "{\"type\":\"error\",\"message\":\"Failed to create partial transcript response\"}";
+        }
+    }
+
     // Response classes
     public static class WebSocketResponse {
         public String type;
@@ -287,4 +652,25 @@ public class AudioStreamingWebSocketHandler implements WebSocketHandler {
             this.needsHumanIntervention = needsHumanIntervention;
         }
     }
-}
\ No newline at end of file
+
+    public static class ReplyDeltaResponse extends WebSocketResponse {
+        public String delta;
+
+        public ReplyDeltaResponse(String type, String message, String conversationUuid, String delta) {
+            super(type, message, conversationUuid);
+            this.delta = delta;
+        }
+    }
+
+    public static class PartialTranscriptResponse extends WebSocketResponse {
+        public String transcript;
+        public boolean end_of_turn;
+
+        public PartialTranscriptResponse(String type, String message, String conversationUuid,
+                                         String transcript, boolean endOfTurn) {
+            super(type, message, conversationUuid);
+            this.transcript = transcript;
+            this.end_of_turn = endOfTurn;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.solocrew;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * The parts of a streamed chat completion chunk the service uses: the first choice's content
+ * delta and, on the final chunk, token usage. One chunk arrives per generated token or two, so it
+ * is decoded with the streaming parser and everything else (ids, model, logprobs) is skipped.
+ *
+ * @param contentDelta     text added by this chunk, empty if none
+ * @param usage            whether the chunk carries usage (only the last one does)
+ * @param promptTokens     prompt tokens, if {@code usage}
+ * @param completionTokens completion tokens, if {@code usage}
+ */
+record ChatCompletionChunk(String contentDelta, boolean usage, int promptTokens, int completionTokens) {
+
+    static ChatCompletionChunk decode(JsonFactory factory, String json) throws IOException {
+        String contentDelta = "";
+        boolean usage = false;
+        int promptTokens = 0;
+        int completionTokens = 0;
+
+        try (JsonParser parser = factory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    contentDelta = firstChoiceContent(parser);
+                } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                    usage = true;
+                    String usageField;
+                    while ((usageField = parser.nextFieldName()) != null) {
+                        parser.nextToken();
+                        if ("prompt_tokens".equals(usageField)) {
+                            promptTokens = parser.getValueAsInt();
+                        } else if ("completion_tokens".equals(usageField)) {
+                            completionTokens = parser.getValueAsInt();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new ChatCompletionChunk(contentDelta, usage, promptTokens, completionTokens);
+    }
+
+    /** Reads {@code choices[0].delta.content} and leaves the parser after the array. */
+    private static String firstChoiceContent(JsonParser parser) throws IOException {
+        String content = "";
+        boolean first = true;
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY && element != null) {
+            if (!first || element != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            first = false;
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                if (!"delta".equals(field) || value != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                String deltaField;
+                while ((deltaField = parser.nextFieldName()) != null) {
+                    JsonToken deltaValue = parser.nextToken();
+                    if ("content".equals(deltaField) && deltaValue == JsonToken.VALUE_STRING) {
+                        content = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+        return content;
+    }
+}
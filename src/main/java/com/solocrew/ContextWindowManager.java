@@ -0,0 +1,97 @@
+package com.solocrew;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the chat request bounded however long a conversation runs.
+ *
+ * <p>Each request carries the system prompt, a rolling summary of older turns and the most
+ * recent turns verbatim, trimmed to a token budget. Once enough turns have fallen out of the
+ * verbatim window they are folded into the summary by a background chat call; until that
+ * finishes the window simply leaves them out.
+ */
+@Component
+public class ContextWindowManager implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ContextWindowManager.class);
+
+    @Autowired
+    private OpenAIChatService openAIChatService;
+
+    @Value("${conversation.context.verbatim-turns:6}")
+    private int verbatimTurns;
+
+    @Value("${conversation.context.max-tokens:3000}")
+    private int maxTokens;
+
+    @Value("${conversation.context.summarize-batch-turns:4}")
+    private int summarizeBatchTurns;
+
+    private final AtomicLong summariesApplied = new AtomicLong();
+    private final AtomicLong summariesFailed = new AtomicLong();
+
+    /**
+     * The messages to send for the next completion.
+     */
+    public List<ConversationMessage> buildContext(ConversationSession conversation) {
+        return conversation.getContextWindow(verbatimTurns * 2, maxTokens);
+    }
+
+    /**
+     * The messages to send for a completion on a history snapshot, e.g. one with a message
+     * that has not been added to the conversation yet.
+     */
+    public List<ConversationMessage> buildContext(ConversationSession.History history) {
+        return history.getContextWindow(verbatimTurns * 2, maxTokens);
+    }
+
+    /**
+     * Starts summarising turns that have left the verbatim window, if there are enough of them.
+     * Returns immediately.
+     */
+    public void compactIfNeeded(ConversationSession conversation) {
+        List<ConversationMessage> older = conversation.claimMessagesToSummarize(verbatimTurns * 2, summarizeBatchTurns * 2);
+        if (older == null) {
+            return;
+        }
+        openAIChatService.summarizeConversationAsync(conversation.getSummaryText(), older)
+                .subscribe(
+                        summary -> {
+                            conversation.applySummary(summary, older.size());
+                            summariesApplied.incrementAndGet();
+                            log.atDebug().addKeyValue("conversation", conversation.getUuid())
+                                    .log("Compacted {} messages into summary", older.size());
+                        },
+                        error -> {
+                            conversation.abandonSummary();
+                            summariesFailed.incrementAndGet();
+                            log.atWarn().addKeyValue("conversation", conversation.getUuid())
+                                    .log("Failed to summarize conversation: {}", error.getMessage());
+                        });
+    }
+
+    /**
+     * Background summaries by outcome: {@code voice.context.summaries{outcome=applied|failed}}.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        summaryCounter(registry, "applied", summariesApplied);
+        summaryCounter(registry, "failed", summariesFailed);
+    }
+
+    private static void summaryCounter(MeterRegistry registry, String outcome, AtomicLong count) {
+        FunctionCounter.builder("voice.context.summaries", count, AtomicLong::get)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
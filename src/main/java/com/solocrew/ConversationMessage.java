@@ -1,27 +1,36 @@
 package com.solocrew;
 
+/**
+ * A single chat message. Immutable, so history snapshots can share instances.
+ */
 public class ConversationMessage {
-    private String role; // "system", "user", "assistant"
-    private String content;
+    private final String role; // "system", "user", "assistant"
+    private final String content;
+    private final int approxTokens;
 
     public ConversationMessage(String role, String content) {
         this.role = role;
         this.content = content;
+        this.approxTokens = estimateTokens(content);
     }
 
     public String getRole() {
         return role;
     }
 
-    public void setRole(String role) {
-        this.role = role;
-    }
-
     public String getContent() {
         return content;
     }
 
-    public void setContent(String content) {
-        this.content = content;
+    /**
+     * Rough token count for context budgeting: about four characters per token for English text,
+     * plus the per-message overhead of the chat format.
+     */
+    public int getApproxTokens() {
+        return approxTokens;
+    }
+
+    private static int estimateTokens(String content) {
+        return (content == null ? 0 : (content.length() + 3) / 4) + 4;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.solocrew;
+
+/**
+ * Durable storage behind {@link ConversationStore}. The store keeps live conversations in memory;
+ * the repository records every change to them and rebuilds a conversation when it is next used
+ * after being evicted from memory or after a restart.
+ *
+ * <p>Implementations are selected with {@code conversation.persistence.type}. Appends are called
+ * while the conversation is locked, in the order the changes happened, and must not block on I/O.
+ */
+public interface ConversationRepository {
+
+    void appendMessage(String uuid, ConversationMessage message);
+
+    /**
+     * Records that the oldest {@code summarizedMessageCount} messages after the system prompt
+     * were replaced by {@code summary}.
+     */
+    void appendSummary(String uuid, ConversationMessage summary, int summarizedMessageCount);
+
+    /**
+     * Rebuilds a conversation from everything recorded for it, or returns null if nothing was.
+     */
+    StoredConversation load(String uuid);
+}
@@ -1,20 +1,23 @@
 package com.solocrew;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * One conversation's history.
+ *
+ * <p>The history is an immutable {@link History} snapshot held in a volatile field. Changes are
+ * made under this session's own monitor by building a new snapshot and publishing it, so readers
+ * (building a chat request, say) never lock and never see a list that is being modified, and
+ * unrelated conversations never contend. Ordering whole turns (user message, completion,
+ * assistant message) is the caller's job: both the REST and WebSocket paths run turns through
+ * {@link TurnProcessingExecutor}, which serialises them per conversation.
+ */
 public class ConversationSession {
-    private String uuid;
-    private List<ConversationMessage> messages;
-    private int distressSignalCount;
 
-    public ConversationSession(String uuid) {
-        this.uuid = uuid;
-        this.messages = new ArrayList<>();
-        this.distressSignalCount = 0;
-        
-        // Add system message
-        this.messages.add(new ConversationMessage("system", 
+    private static final ConversationMessage SYSTEM_PROMPT = new ConversationMessage("system",
             "You are EmpathAI, a compassionate and calm mental health assistant. Your job is to gently support users who may be experiencing emotional distress, sadness, or suicidal thoughts.\n\n" +
             "You listen and respond with empathy, encouragement, and kindness.\n\n" +
             "Your primary goal is to make the user feel heard, validated, and less alone. Keep your responses emotionally supportive, non-judgmental, and short.\n\n" +
@@ -24,30 +27,225 @@ public class ConversationSession {
             "Respond with a JSON object containing two fields:\n" +
             "1. `reply`: a short, empathetic message. Reply should not be more than 150 characters.\n" +
             "2. `isHumanInterventionNeeded`: false always."
-        ));
+    );
+
+    // Rough heap cost of the session itself and of each message object (excluding its text)
+    private static final long SESSION_OVERHEAD_BYTES = 256;
+    private static final long MESSAGE_OVERHEAD_BYTES = 64;
+
+    private final String uuid;
+    private final ConversationRepository repository;
+    private volatile History history;
+    private final AtomicInteger distressSignalCount = new AtomicInteger();
+    private boolean summarizing;
+    private volatile long lastAccessedMillis;
+    private volatile long approxBytes;
+
+    public ConversationSession(String uuid) {
+        this(uuid, null);
+    }
+
+    /**
+     * A session whose changes are recorded in {@code repository}, or nowhere if it is null.
+     */
+    public ConversationSession(String uuid, ConversationRepository repository) {
+        this.uuid = uuid;
+        this.repository = repository;
+        this.history = new History(List.of(SYSTEM_PROMPT), null);
+        this.lastAccessedMillis = System.currentTimeMillis();
+        // The system prompt is a shared constant, so only the session itself counts
+        this.approxBytes = SESSION_OVERHEAD_BYTES;
+    }
+
+    /**
+     * An immutable view of the conversation at one point in time: the system prompt followed by
+     * the messages since the last summary, and that summary if there is one.
+     */
+    public static final class History {
+        private final List<ConversationMessage> messages;
+        private final ConversationMessage summary;
+
+        private History(List<ConversationMessage> messages, ConversationMessage summary) {
+            this.messages = messages;
+            this.summary = summary;
+        }
+
+        public List<ConversationMessage> getMessages() {
+            return messages;
+        }
+
+        public ConversationMessage getSummary() {
+            return summary;
+        }
+
+        /**
+         * This history with {@code message} appended. The conversation itself is not changed; used
+         * to request a reply before the message is committed.
+         */
+        public History withMessage(ConversationMessage message) {
+            return new History(appended(messages, message), summary);
+        }
+
+        /**
+         * See {@link ConversationSession#getContextWindow(int, int)}.
+         */
+        public List<ConversationMessage> getContextWindow(int maxRecentMessages, int maxTokens) {
+            ConversationMessage systemMessage = messages.get(0);
+            int budget = maxTokens - systemMessage.getApproxTokens() - (summary != null ? summary.getApproxTokens() : 0);
+
+            int first = messages.size();
+            while (first > 1 && messages.size() - first < maxRecentMessages) {
+                int tokens = messages.get(first - 1).getApproxTokens();
+                if (tokens > budget && first < messages.size()) {
+                    break;
+                }
+                budget -= tokens;
+                first--;
+            }
+
+            List<ConversationMessage> window = new ArrayList<>(messages.size() - first + 2);
+            window.add(systemMessage);
+            if (summary != null) {
+                window.add(summary);
+            }
+            window.addAll(messages.subList(first, messages.size()));
+            return window;
+        }
     }
 
     public String getUuid() {
         return uuid;
     }
 
+    public History getHistory() {
+        return history;
+    }
+
+    /**
+     * The current messages, system prompt first. The list is immutable.
+     */
     public List<ConversationMessage> getMessages() {
-        return messages;
+        return history.getMessages();
+    }
+
+    public synchronized void addMessage(ConversationMessage message) {
+        History current = history;
+        history = new History(appended(current.messages, message), current.summary);
+        approxBytes += estimateBytes(message);
+        if (repository != null) {
+            repository.appendMessage(uuid, message);
+        }
+    }
+
+    /**
+     * Reinstates history rebuilt from the repository, without recording it again.
+     */
+    public synchronized void restore(StoredConversation stored) {
+        List<ConversationMessage> messages = new ArrayList<>(stored.getMessages().size() + 1);
+        messages.add(SYSTEM_PROMPT);
+        messages.addAll(stored.getMessages());
+        for (ConversationMessage message : stored.getMessages()) {
+            approxBytes += estimateBytes(message);
+        }
+        if (stored.getSummary() != null) {
+            approxBytes += estimateBytes(stored.getSummary());
+        }
+        history = new History(Collections.unmodifiableList(messages), stored.getSummary());
+    }
+
+    private static List<ConversationMessage> appended(List<ConversationMessage> messages, ConversationMessage message) {
+        List<ConversationMessage> copy = new ArrayList<>(messages.size() + 1);
+        copy.addAll(messages);
+        copy.add(message);
+        return Collections.unmodifiableList(copy);
+    }
+
+    public void touch() {
+        this.lastAccessedMillis = System.currentTimeMillis();
+    }
+
+    public long getLastAccessedMillis() {
+        return lastAccessedMillis;
+    }
+
+    /**
+     * Approximate heap footprint, used by the conversation store's memory budget.
+     */
+    public long getApproxBytes() {
+        return approxBytes;
+    }
+
+    private static long estimateBytes(ConversationMessage message) {
+        return MESSAGE_OVERHEAD_BYTES + 2L * (message.getContent() == null ? 0 : message.getContent().length());
+    }
+
+    /**
+     * The messages to send to the model: the system prompt, the summary of compacted turns if
+     * there is one, then as many of the most recent messages as fit in both {@code maxRecentMessages}
+     * and {@code maxTokens}. The latest message is always included. Does not lock.
+     */
+    public List<ConversationMessage> getContextWindow(int maxRecentMessages, int maxTokens) {
+        return history.getContextWindow(maxRecentMessages, maxTokens);
+    }
+
+    /**
+     * Claims the messages that have fallen out of the verbatim window for summarisation, or returns
+     * null if there are fewer than {@code minBatch} of them or a summarisation is already running.
+     * Every claim must be followed by {@link #applySummary} or {@link #abandonSummary}.
+     */
+    public synchronized List<ConversationMessage> claimMessagesToSummarize(int keepRecentMessages, int minBatch) {
+        List<ConversationMessage> messages = history.messages;
+        int olderMessages = messages.size() - 1 - keepRecentMessages;
+        if (summarizing || olderMessages < minBatch) {
+            return null;
+        }
+        summarizing = true;
+        return messages.subList(1, 1 + olderMessages);
+    }
+
+    /**
+     * Replaces the summarised messages, which must be the oldest ones after the system prompt,
+     * with a single summary message.
+     */
+    public synchronized void applySummary(String summaryText, int summarizedMessageCount) {
+        History current = history;
+        List<ConversationMessage> remaining = new ArrayList<>(current.messages.size() - summarizedMessageCount);
+        remaining.add(current.messages.get(0));
+        remaining.addAll(current.messages.subList(1 + summarizedMessageCount, current.messages.size()));
+        for (ConversationMessage message : current.messages.subList(1, 1 + summarizedMessageCount)) {
+            approxBytes -= estimateBytes(message);
+        }
+        if (current.summary != null) {
+            approxBytes -= estimateBytes(current.summary);
+        }
+
+        ConversationMessage summary = new ConversationMessage("system", "Summary of the earlier conversation: " + summaryText);
+        approxBytes += estimateBytes(summary);
+        history = new History(Collections.unmodifiableList(remaining), summary);
+        summarizing = false;
+        if (repository != null) {
+            repository.appendSummary(uuid, summary, summarizedMessageCount);
+        }
+    }
+
+    public synchronized void abandonSummary() {
+        summarizing = false;
     }
 
-    public void addMessage(ConversationMessage message) {
-        this.messages.add(message);
+    public String getSummaryText() {
+        ConversationMessage summary = history.summary;
+        return summary != null ? summary.getContent() : null;
     }
 
     public int getDistressSignalCount() {
-        return distressSignalCount;
+        return distressSignalCount.get();
     }
 
-    public void incrementDistressSignalCount() {
-        this.distressSignalCount++;
+    public int incrementDistressSignalCount() {
+        return distressSignalCount.incrementAndGet();
     }
 
     public boolean needsHumanIntervention() {
-        return distressSignalCount >= 5;
+        return distressSignalCount.get() >= 5;
     }
-}
\ No newline at end of file
+}
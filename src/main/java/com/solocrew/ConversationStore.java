@@ -0,0 +1,195 @@
+package com.solocrew;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The single in-memory home of all {@link ConversationSession}s, shared by the REST and
+ * WebSocket paths.
+ *
+ * <p>Conversations idle for longer than {@code conversation.store.idle-ttl-ms} are removed by a
+ * periodic sweep. The store is also bounded by entry count and by the sessions' approximate heap
+ * footprint; when either limit is exceeded the least recently used conversations are evicted
+ * down to 90% of the limit, so eviction work is amortised over many inserts.
+ *
+ * <p>Every change to a conversation is also recorded in the {@link ConversationRepository}, so
+ * eviction only drops the in-memory copy: a conversation that is used again, including after a
+ * restart, is rebuilt from the repository.
+ */
+@Component
+public class ConversationStore implements MeterBinder {
+
+    @Value("${conversation.store.idle-ttl-ms:1800000}")
+    private long idleTtlMs;
+
+    @Value("${conversation.store.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${conversation.store.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Autowired
+    private ConversationRepository repository;
+
+    private final ConcurrentHashMap<String, ConversationSession> conversations = new ConcurrentHashMap<>();
+    // Loads in progress, so concurrent first accesses share one
+    private final ConcurrentHashMap<String, CompletableFuture<ConversationSession>> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong restored = new AtomicLong();
+    private final AtomicLong idleEvictions = new AtomicLong();
+    private final AtomicLong sizeEvictions = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+
+    /**
+     * Returns the conversation, restoring it from the repository or creating it if needed, and
+     * marks it as recently used.
+     */
+    public ConversationSession getOrCreate(String uuid) {
+        ConversationSession conversation = conversations.get(uuid);
+        if (conversation == null) {
+            conversation = load(uuid);
+        }
+        conversation.touch();
+        return conversation;
+    }
+
+    /**
+     * Restores or creates a conversation that is not in memory. Concurrent first accesses to the
+     * same conversation wait for one load instead of building two copies; the load itself, which
+     * may wait on the repository, runs outside the map so other conversations are not held up.
+     */
+    private ConversationSession load(String uuid) {
+        CompletableFuture<ConversationSession> placeholder = new CompletableFuture<>();
+        CompletableFuture<ConversationSession> inFlight = loading.putIfAbsent(uuid, placeholder);
+        if (inFlight != null) {
+            return inFlight.join();
+        }
+        try {
+            // Another load may have finished between the caller's lookup and claiming the placeholder
+            ConversationSession conversation = conversations.get(uuid);
+            if (conversation == null) {
+                conversation = new ConversationSession(uuid, repository);
+                StoredConversation stored = repository.load(uuid);
+                if (stored != null) {
+                    conversation.restore(stored);
+                    restored.incrementAndGet();
+                } else {
+                    created.incrementAndGet();
+                }
+                conversations.put(uuid, conversation);
+                if (conversations.size() > maxEntries) {
+                    evictLeastRecentlyUsed();
+                }
+            }
+            placeholder.complete(conversation);
+            return conversation;
+        } catch (RuntimeException e) {
+            placeholder.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(uuid, placeholder);
+        }
+    }
+
+    /**
+     * Drops the in-memory copy; the conversation stays in the repository.
+     */
+    public void remove(String uuid) {
+        conversations.remove(uuid);
+    }
+
+    @Scheduled(fixedDelayString = "${conversation.store.sweep-interval-ms:30000}")
+    public void sweep() {
+        long idleBefore = System.currentTimeMillis() - idleTtlMs;
+        conversations.forEach((uuid, conversation) -> {
+            if (conversation.getLastAccessedMillis() < idleBefore && conversations.remove(uuid, conversation)) {
+                idleEvictions.incrementAndGet();
+            }
+        });
+        if (conversations.size() > maxEntries || getApproxBytes() > maxBytes) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    private synchronized void evictLeastRecentlyUsed() {
+        List<ConversationSession> byAge = new ArrayList<>(conversations.values());
+        byAge.sort(Comparator.comparingLong(ConversationSession::getLastAccessedMillis));
+
+        long bytes = 0;
+        for (ConversationSession conversation : byAge) {
+            bytes += conversation.getApproxBytes();
+        }
+        int entries = byAge.size();
+        int entryTarget = entries > maxEntries ? (int) (maxEntries * 0.9) : entries;
+        long byteTarget = bytes > maxBytes ? (long) (maxBytes * 0.9) : bytes;
+
+        for (ConversationSession conversation : byAge) {
+            if (entries <= entryTarget && bytes <= byteTarget) {
+                break;
+            }
+            if (conversations.remove(conversation.getUuid(), conversation)) {
+                if (entries > entryTarget) {
+                    sizeEvictions.incrementAndGet();
+                } else {
+                    memoryEvictions.incrementAndGet();
+                }
+                entries--;
+                bytes -= conversation.getApproxBytes();
+            }
+        }
+    }
+
+    public int size() {
+        return conversations.size();
+    }
+
+    public long getApproxBytes() {
+        long bytes = 0;
+        for (ConversationSession conversation : conversations.values()) {
+            bytes += conversation.getApproxBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Store meters: conversations held and their approximate footprint, {@code
+     * voice.conversations.loads} (result = created | restored) and {@code
+     * voice.conversations.evictions} (cause = idle | size | memory).
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("voice.conversations.active", this, ConversationStore::size).register(registry);
+        Gauge.builder("voice.conversations.size", this, ConversationStore::getApproxBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("voice.conversations.loads", created, AtomicLong::get)
+                .tag("result", "created")
+                .register(registry);
+        FunctionCounter.builder("voice.conversations.loads", restored, AtomicLong::get)
+                .tag("result", "restored")
+                .register(registry);
+        evictionCounter(registry, "idle", idleEvictions);
+        evictionCounter(registry, "size", sizeEvictions);
+        evictionCounter(registry, "memory", memoryEvictions);
+    }
+
+    private static void evictionCounter(MeterRegistry registry, String cause, AtomicLong count) {
+        FunctionCounter.builder("voice.conversations.evictions", count, AtomicLong::get)
+                .tag("cause", cause)
+                .register(registry);
+    }
+}
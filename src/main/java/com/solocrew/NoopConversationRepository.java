@@ -0,0 +1,26 @@
+package com.solocrew;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps nothing: conversations live only as long as they stay in {@link ConversationStore}.
+ * Enabled with {@code conversation.persistence.type=none}.
+ */
+@Component
+@ConditionalOnProperty(name = "conversation.persistence.type", havingValue = "none")
+public class NoopConversationRepository implements ConversationRepository {
+
+    @Override
+    public void appendMessage(String uuid, ConversationMessage message) {
+    }
+
+    @Override
+    public void appendSummary(String uuid, ConversationMessage summary, int summarizedMessageCount) {
+    }
+
+    @Override
+    public StoredConversation load(String uuid) {
+        return null;
+    }
+}
@@ -2,112 +2,319 @@ package com.solocrew;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 public class OpenAIChatService {
 
+    private static final Logger log = LoggerFactory.getLogger(OpenAIChatService.class);
+    /** Request bodies (the conversation) and model output; debug only. */
+    private static final Logger payloadLog = LoggerFactory.getLogger("com.solocrew.payload.openai");
+
     @Value("${openai.api.key}")
     private String apiKey;
 
-    private final WebClient webClient;
-    private final ObjectMapper objectMapper;
+    @Value("${openai.api.base-url:https://api.openai.com}")
+    private String baseUrl;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
-    private static final String OPENAI_CHAT_URL = "https://api.openai.com/v1/chat/completions";
+    private WebClient webClient;
 
-    public OpenAIChatService() {
-        this.webClient = WebClient.builder()
+    private static final String CHAT_COMPLETIONS_PATH = "/v1/chat/completions";
+    private static final String SUMMARY_PROMPT =
+            "Summarize the conversation below between a user and a supportive mental health assistant in under 120 words. " +
+            "Keep the user's emotional state, key facts they shared, whether they are alone or with others, any risk indicators, " +
+            "and what the assistant has already suggested. If it starts with an earlier summary, merge it in.";
+    private static final Pattern INTERVENTION_FLAG = Pattern.compile("\"isHumanInterventionNeeded\"\\s*:\\s*(true|false)");
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE = new ParameterizedTypeReference<>() {};
+
+    @PostConstruct
+    public void initWebClient() {
+        webClient = webClientBuilder
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .build();
-        this.objectMapper = new ObjectMapper();
     }
 
     public EmpathyResponse generateEmpathyResponse(List<ConversationMessage> conversationHistory) throws Exception {
+        return ReactiveSupport.block(generateEmpathyResponseAsync(conversationHistory));
+    }
+
+    /**
+     * Non-blocking variant of {@link #generateEmpathyResponse}: no thread is held while the
+     * completion is in flight. Fails with the same exception the blocking method throws.
+     */
+    public Mono<EmpathyResponse> generateEmpathyResponseAsync(List<ConversationMessage> conversationHistory) {
+        return Mono.defer(() -> {
+                    long startedNanos = System.nanoTime();
+                    return Mono.fromCallable(() -> buildRequestBody(conversationHistory, false))
+                            .flatMap(jsonBody -> webClient.post()
+                                    .uri(baseUrl + CHAT_COMPLETIONS_PATH)
+                                    .header("Authorization", "Bearer " + apiKey)
+                                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                    .bodyValue(jsonBody)
+                                    .retrieve()
+                                    .bodyToMono(String.class))
+                            .timeout(Duration.ofSeconds(30))
+                            .doOnSuccess(response -> recordLatency("blocking", "success", startedNanos))
+                            .doOnError(e -> recordLatency("blocking", PipelineMetrics.outcome(e), startedNanos))
+                            .doOnCancel(() -> recordLatency("blocking", "cancelled", startedNanos));
+                })
+                .map(this::parseEmpathyResponse)
+                .onErrorMap(e -> {
+                    log.warn("Chat completion failed: {}", e.toString());
+                    return new Exception("Failed to generate empathy response: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Streaming variant: requests the completion with {@code stream: true} and emits
+     * {@link EmpathyResponseEvent}s carrying pieces of the reply text as soon as the model produces
+     * them, followed by exactly one final event with the complete {@link EmpathyResponse}.
+     */
+    public Flux<EmpathyResponseEvent> streamEmpathyResponse(List<ConversationMessage> conversationHistory) {
+        return Flux.defer(() -> {
+                    StreamingReplyExtractor replyExtractor = new StreamingReplyExtractor();
+                    StringBuilder content = new StringBuilder();
+                    long startedNanos = System.nanoTime();
+
+                    return Mono.fromCallable(() -> buildRequestBody(conversationHistory, true))
+                            .flatMapMany(jsonBody -> webClient.post()
+                                    .uri(baseUrl + CHAT_COMPLETIONS_PATH)
+                                    .header("Authorization", "Bearer " + apiKey)
+                                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                    .accept(MediaType.TEXT_EVENT_STREAM)
+                                    .bodyValue(jsonBody)
+                                    .retrieve()
+                                    .bodyToFlux(SSE_TYPE))
+                            .map(event -> event.data() == null ? "" : event.data())
+                            .takeWhile(data -> !"[DONE]".equals(data))
+                            .concatMapIterable(data -> {
+                                ChatCompletionChunk chunk = parseChunk(data);
+                                // Only the last chunk carries usage, with an empty choices array
+                                if (chunk.usage()) {
+                                    pipelineMetrics.recordTokens(chunk.promptTokens(), chunk.completionTokens());
+                                }
+                                String delta = chunk.contentDelta();
+                                if (delta.isEmpty()) {
+                                    return List.<EmpathyResponseEvent>of();
+                                }
+                                content.append(delta);
+                                String replyDelta = replyExtractor.feed(delta);
+                                return replyDelta.isEmpty()
+                                        ? List.<EmpathyResponseEvent>of()
+                                        : List.of(EmpathyResponseEvent.delta(replyDelta));
+                            })
+                            .concatWith(Mono.fromCallable(() -> EmpathyResponseEvent.complete(
+                                    completeStreamedResponse(content.toString(), replyExtractor))))
+                            .timeout(Duration.ofSeconds(30))
+                            .doOnComplete(() -> recordLatency("streaming", "success", startedNanos))
+                            .doOnError(e -> recordLatency("streaming", PipelineMetrics.outcome(e), startedNanos))
+                            .doOnCancel(() -> recordLatency("streaming", "cancelled", startedNanos));
+                })
+                .onErrorMap(e -> {
+                    log.warn("Streamed chat completion failed: {}", e.toString());
+                    return new Exception("Failed to generate empathy response: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Folds {@code messages} (and the previous summary, if any) into a short plain-text summary,
+     * used to keep long conversations within the context budget.
+     */
+    public Mono<String> summarizeConversationAsync(String previousSummary, List<ConversationMessage> messages) {
+        return Mono.fromCallable(() -> {
+                    StringBuilder transcript = new StringBuilder();
+                    if (previousSummary != null) {
+                        transcript.append(previousSummary).append("\n\n");
+                    }
+                    for (ConversationMessage msg : messages) {
+                        transcript.append(msg.getRole()).append(": ").append(msg.getContent()).append("\n");
+                    }
+
+                    Map<String, Object> requestBody = new HashMap<>();
+                    requestBody.put("model", "gpt-4");
+                    requestBody.put("messages", List.of(
+                            Map.of("role", "system", "content", SUMMARY_PROMPT),
+                            Map.of("role", "user", "content", transcript.toString())));
+                    requestBody.put("max_tokens", 200);
+                    requestBody.put("temperature", 0.2);
+                    return objectMapper.writeValueAsString(requestBody);
+                })
+                .flatMap(jsonBody -> webClient.post()
+                        .uri(baseUrl + CHAT_COMPLETIONS_PATH)
+                        .header("Authorization", "Bearer " + apiKey)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .bodyValue(jsonBody)
+                        .retrieve()
+                        .bodyToMono(String.class))
+                .timeout(Duration.ofSeconds(30))
+                .map(response -> {
+                    try {
+                        return objectMapper.readTree(response).get("choices").get(0).get("message").get("content").asText().trim();
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Unexpected chat completion response: " + e.getMessage(), e);
+                    }
+                });
+    }
+
+    private ChatCompletionChunk parseChunk(String chunkJson) {
         try {
-            System.out.println("=== OPENAI REQUEST ===");
-            System.out.println("Conversation history size: " + conversationHistory.size() + " messages");
-            
-            // Print conversation history
-            for (int i = 0; i < conversationHistory.size(); i++) {
-                ConversationMessage msg = conversationHistory.get(i);
-                System.out.println("Message " + i + " [" + msg.getRole() + "]: " + msg.getContent());
-            }
-
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "gpt-4");
-            requestBody.put("messages", conversationHistory.stream()
-                    .map(msg -> {
-                        Map<String, String> message = new HashMap<>();
-                        message.put("role", msg.getRole());
-                        message.put("content", msg.getContent());
-                        return message;
-                    })
-                    .collect(Collectors.toList()));
-            requestBody.put("max_tokens", 200);
-            requestBody.put("temperature", 0.7);
-
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
-            System.out.println("OpenAI Request Body: " + jsonBody);
-            System.out.println("=====================");
-
-            String response = webClient.post()
-                    .uri(OPENAI_CHAT_URL)
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                    .bodyValue(jsonBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block(Duration.ofSeconds(30));
-
-            System.out.println("=== OPENAI RAW RESPONSE ===");
-            System.out.println("Full response: " + response);
-            System.out.println("===========================");
+            return ChatCompletionChunk.decode(objectMapper.getFactory(), chunkJson);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unexpected chat completion chunk: " + e.getMessage(), e);
+        }
+    }
+
+    private void recordLatency(String mode, String outcome, long startedNanos) {
+        pipelineMetrics.recordChatCompletion(mode, outcome, System.nanoTime() - startedNanos);
+    }
+
+    private void recordUsage(JsonNode usage) {
+        if (usage.isObject()) {
+            pipelineMetrics.recordTokens(usage.path("prompt_tokens").asInt(), usage.path("completion_tokens").asInt());
+        }
+    }
+
+    String buildRequestBody(List<ConversationMessage> conversationHistory, boolean stream) throws Exception {
+        log.debug("Chat completion request with {} messages, stream={}", conversationHistory.size(), stream);
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", "gpt-4");
+        requestBody.put("messages", conversationHistory.stream()
+                .map(msg -> {
+                    Map<String, String> message = new HashMap<>();
+                    message.put("role", msg.getRole());
+                    message.put("content", msg.getContent());
+                    return message;
+                })
+                .collect(Collectors.toList()));
+        requestBody.put("max_tokens", 200);
+        requestBody.put("temperature", 0.7);
+        if (stream) {
+            requestBody.put("stream", true);
+            requestBody.put("stream_options", Map.of("include_usage", true));
+        }
+
+        String jsonBody = objectMapper.writeValueAsString(requestBody);
+        payloadLog.debug("Chat completion request body: {}", jsonBody);
+        return jsonBody;
+    }
 
+    private EmpathyResponse parseEmpathyResponse(String response) {
+        payloadLog.debug("Chat completion response: {}", response);
+
+        String aiResponse;
+        try {
             JsonNode jsonResponse = objectMapper.readTree(response);
-            String aiResponse = jsonResponse.get("choices").get(0).get("message").get("content").asText();
-
-            System.out.println("=== OPENAI AI CONTENT ===");
-            System.out.println("AI Content: " + aiResponse);
-            System.out.println("========================");
-
-            // Parse the JSON response from the AI
-            try {
-                JsonNode aiJsonResponse = objectMapper.readTree(aiResponse);
-                String reply = aiJsonResponse.get("reply").asText();
-                boolean isHumanInterventionNeeded = aiJsonResponse.get("isHumanInterventionNeeded").asBoolean();
-                
-                System.out.println("=== PARSED AI RESPONSE ===");
-                System.out.println("Reply: " + reply);
-                System.out.println("Human Intervention Needed: " + isHumanInterventionNeeded);
-                System.out.println("=========================");
-                
-                return new EmpathyResponse(reply, isHumanInterventionNeeded);
-            } catch (Exception e) {
-                // Fallback if AI doesn't return proper JSON
-                System.err.println("=== AI RESPONSE PARSING FAILED ===");
-                System.err.println("Error: " + e.getMessage());
-                System.err.println("Raw AI response that failed to parse: " + aiResponse);
-                System.err.println("Using fallback response");
-                System.err.println("=================================");
-                return new EmpathyResponse("I'm here to listen and support you. Please tell me more about how you're feeling.", false);
-            }
+            recordUsage(jsonResponse.path("usage"));
+            aiResponse = jsonResponse.get("choices").get(0).get("message").get("content").asText();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unexpected chat completion response: " + e.getMessage(), e);
+        }
+
+        return parseAiContent(aiResponse);
+    }
+
+    private EmpathyResponse parseAiContent(String aiResponse) {
+        payloadLog.debug("Chat completion content: {}", aiResponse);
 
+        // Parse the JSON response from the AI
+        try {
+            JsonNode aiJsonResponse = objectMapper.readTree(aiResponse);
+            String reply = aiJsonResponse.get("reply").asText();
+            boolean isHumanInterventionNeeded = aiJsonResponse.get("isHumanInterventionNeeded").asBoolean();
+            
+            log.debug("Parsed reply, human intervention needed: {}", isHumanInterventionNeeded);
+            
+            return new EmpathyResponse(reply, isHumanInterventionNeeded);
         } catch (Exception e) {
-            System.err.println("=== OPENAI REQUEST FAILED ===");
-            System.err.println("Error: " + e.getMessage());
-            e.printStackTrace();
-            System.err.println("============================");
-            throw new Exception("Failed to generate empathy response: " + e.getMessage());
+            // Fallback if AI doesn't return proper JSON
+            log.warn("Model reply was not the expected JSON, using the fallback reply: {}", e.getMessage());
+            payloadLog.debug("Unparseable model reply: {}", aiResponse);
+            return new EmpathyResponse("I'm here to listen and support you. Please tell me more about how you're feeling.", false);
+        }
+    }
+
+    /**
+     * The final response of a streamed completion. Its reply is the text already streamed to the
+     * client as deltas, so the two never disagree, even when the content around it is not valid
+     * JSON (typically cut off by {@code max_tokens}); only the intervention flag falls back to
+     * false when it is missing. Content without a reply field at all is handled as in the
+     * non-streaming path.
+     */
+    private EmpathyResponse completeStreamedResponse(String content, StreamingReplyExtractor replyExtractor) {
+        String reply = replyExtractor.getReply();
+        if (reply.isEmpty()) {
+            return parseAiContent(content);
+        }
+        payloadLog.debug("Chat completion content: {}", content);
+        if (!replyExtractor.isComplete()) {
+            log.warn("Streamed reply ended before its closing quote, keeping the {} characters streamed", reply.length());
+        }
+        Matcher flag = INTERVENTION_FLAG.matcher(content);
+        boolean isHumanInterventionNeeded = flag.find() && Boolean.parseBoolean(flag.group(1));
+        return new EmpathyResponse(reply, isHumanInterventionNeeded);
+    }
+
+    /**
+     * One element of {@link #streamEmpathyResponse}: either a piece of reply text or, last, the
+     * complete response.
+     */
+    public static class EmpathyResponseEvent {
+        private final String replyDelta;
+        private final EmpathyResponse response;
+
+        private EmpathyResponseEvent(String replyDelta, EmpathyResponse response) {
+            this.replyDelta = replyDelta;
+            this.response = response;
+        }
+
+        public static EmpathyResponseEvent delta(String replyDelta) {
+            return new EmpathyResponseEvent(replyDelta, null);
+        }
+
+        public static EmpathyResponseEvent complete(EmpathyResponse response) {
+            return new EmpathyResponseEvent(null, response);
+        }
+
+        public boolean isComplete() {
+            return response != null;
+        }
+
+        public String getReplyDelta() {
+            return replyDelta;
+        }
+
+        public EmpathyResponse getResponse() {
+            return response;
         }
     }
 
@@ -1,61 +1,203 @@
 package com.solocrew;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class OpenAITTSService {
 
+    private static final Logger log = LoggerFactory.getLogger(OpenAITTSService.class);
+    private static final Logger payloadLog = LoggerFactory.getLogger("com.solocrew.payload.tts");
+
     @Value("${openai.api.key}")
     private String apiKey;
 
-    private final WebClient webClient;
-    private final ObjectMapper objectMapper;
+    @Value("${openai.api.base-url:https://api.openai.com}")
+    private String baseUrl;
+
+    @Autowired
+    private TtsAudioCache audioCache;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private WebClient webClient;
 
-    private static final String OPENAI_TTS_URL = "https://api.openai.com/v1/audio/speech";
+    private static final String SPEECH_PATH = "/v1/audio/speech";
+    private static final String TTS_MODEL = "tts-1";
+    private static final String TTS_VOICE = "nova"; // Nova is a soft female voice
+    private static final String TTS_FORMAT = "mp3";
 
-    public OpenAITTSService() {
-        this.webClient = WebClient.builder()
+    @PostConstruct
+    public void initWebClient() {
+        webClient = webClientBuilder
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .build();
-        this.objectMapper = new ObjectMapper();
     }
 
     public byte[] generateSpeech(String text) throws Exception {
-        try {
-            System.out.println("Generating speech for text: " + text.substring(0, Math.min(text.length(), 50)) + "...");
+        return ReactiveSupport.block(generateSpeechAsync(text));
+    }
+
+    /**
+     * Non-blocking variant of {@link #generateSpeech}.
+     */
+    public Mono<byte[]> generateSpeechAsync(String text) {
+        String cacheKey = TtsAudioCache.key(text, TTS_VOICE, TTS_MODEL, TTS_FORMAT);
+        // Looked up on subscription, not when the Mono is assembled
+        return Mono.defer(() -> {
+                    byte[] cached = audioCache.get(cacheKey);
+                    if (cached != null) {
+                        pipelineMetrics.recordSpeech("buffered", true, "success", 0, cached.length);
+                        return Mono.just(cached);
+                    }
+                    long startedNanos = System.nanoTime();
+                    return buildRequestBody(text)
+                            .flatMap(jsonBody -> speechRequest(jsonBody)
+                                    .retrieve()
+                                    .bodyToMono(byte[].class))
+                            .timeout(Duration.ofMinutes(1))
+                            .doOnSuccess(audioData -> recordSpeech("buffered", "success", startedNanos,
+                                    audioData == null ? 0 : audioData.length))
+                            .doOnError(e -> recordSpeech("buffered", PipelineMetrics.outcome(e), startedNanos, 0))
+                            .doOnCancel(() -> recordSpeech("buffered", "cancelled", startedNanos, 0))
+                            .doOnNext(audioData -> {
+                                log.debug("Speech generation completed, audio size: {} bytes", audioData.length);
+                                audioCache.put(cacheKey, audioData);
+                            });
+                })
+                .onErrorMap(e -> {
+                    log.warn("Failed to generate speech: {}", e.getMessage());
+                    return new Exception("Failed to generate speech: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Streams the audio as it arrives instead of buffering the whole file. The Mono completes once
+     * the upstream has answered with a success status (and fails if it has not), the inner Flux then
+     * carries the body chunks. Callers must release each {@link DataBuffer}.
+     *
+     * <p>Cached audio is served as a single buffer without an upstream call; on a miss the chunks
+     * are copied aside as they pass through and the complete audio is cached at the end.
+     */
+    public Mono<Flux<DataBuffer>> streamSpeech(String text) {
+        String cacheKey = TtsAudioCache.key(text, TTS_VOICE, TTS_MODEL, TTS_FORMAT);
+        return Mono.defer(() -> {
+                    byte[] cached = audioCache.get(cacheKey);
+                    if (cached != null) {
+                        pipelineMetrics.recordSpeech("streamed", true, "success", 0, cached.length);
+                        return Mono.just(Flux.<DataBuffer>just(DefaultDataBufferFactory.sharedInstance.wrap(cached)));
+                    }
+                    long startedNanos = System.nanoTime();
+                    return buildRequestBody(text)
+                            .flatMap(jsonBody -> speechRequest(jsonBody)
+                                    .retrieve()
+                                    .toEntityFlux(DataBuffer.class))
+                            .timeout(Duration.ofMinutes(1))
+                            .doOnError(e -> recordSpeech("streamed", PipelineMetrics.outcome(e), startedNanos, 0))
+                            .map(response -> measureStreamed(teeIntoCache(cacheKey, response.getBody()), startedNanos));
+                })
+                .onErrorMap(e -> {
+                    log.warn("Failed to generate speech: {}", e.getMessage());
+                    return new Exception("Failed to generate speech: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Records the streamed synthesis once the body has been fully read, from when the request
+     * was started.
+     */
+    private Flux<DataBuffer> measureStreamed(Flux<DataBuffer> audio, long startedNanos) {
+        return Flux.defer(() -> {
+            AtomicLong bytes = new AtomicLong();
+            return audio
+                    .doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()))
+                    .doOnComplete(() -> recordSpeech("streamed", "success", startedNanos, bytes.get()))
+                    .doOnError(e -> recordSpeech("streamed", PipelineMetrics.outcome(e), startedNanos, bytes.get()))
+                    .doOnCancel(() -> recordSpeech("streamed", "cancelled", startedNanos, bytes.get()));
+        });
+    }
+
+    private void recordSpeech(String mode, String outcome, long startedNanos, long bytes) {
+        pipelineMetrics.recordSpeech(mode, false, outcome, System.nanoTime() - startedNanos, bytes);
+    }
+
+    private Flux<DataBuffer> teeIntoCache(String cacheKey, Flux<DataBuffer> audio) {
+        if (!audioCache.isEnabled()) {
+            return audio;
+        }
+        return Flux.defer(() -> {
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            AtomicBoolean cacheable = new AtomicBoolean(true);
+            return audio
+                    .doOnNext(buffer -> {
+                        int size = buffer.readableByteCount();
+                        if (!cacheable.get()) {
+                            return;
+                        }
+                        if (copy.size() + size > audioCache.getMaxEntryBytes()) {
+                            // Too large to be worth caching, stop copying
+                            cacheable.set(false);
+                            copy.reset();
+                            return;
+                        }
+                        byte[] chunk = new byte[size];
+                        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(chunk), 0, size);
+                        copy.writeBytes(chunk);
+                    })
+                    .doOnComplete(() -> {
+                        if (cacheable.get()) {
+                            audioCache.put(cacheKey, copy.toByteArray());
+                        }
+                    });
+        });
+    }
+
+    private Mono<String> buildRequestBody(String text) {
+        return Mono.fromCallable(() -> {
+            payloadLog.debug("Generating speech for text: {}", text);
 
             Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "tts-1");
+            requestBody.put("model", TTS_MODEL);
             requestBody.put("input", text);
-            requestBody.put("voice", "nova"); // Nova is a soft female voice
-            requestBody.put("response_format", "mp3");
-
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
-
-            byte[] audioData = webClient.post()
-                    .uri(OPENAI_TTS_URL)
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                    .bodyValue(jsonBody)
-                    .retrieve()
-                    .bodyToMono(byte[].class)
-                    .block(Duration.ofMinutes(1));
-
-            System.out.println("Speech generation completed successfully, audio size: " + audioData.length + " bytes");
-            return audioData;
-
-        } catch (Exception e) {
-            System.err.println("Failed to generate speech: " + e.getMessage());
-            throw new Exception("Failed to generate speech: " + e.getMessage());
-        }
+            requestBody.put("voice", TTS_VOICE);
+            requestBody.put("response_format", TTS_FORMAT);
+
+            return objectMapper.writeValueAsString(requestBody);
+        });
+    }
+
+    private WebClient.RequestHeadersSpec<?> speechRequest(String jsonBody) {
+        return webClient.post()
+                .uri(baseUrl + SPEECH_PATH)
+                .header("Authorization", "Bearer " + apiKey)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .bodyValue(jsonBody);
     }
-}
\ No newline at end of file
+}
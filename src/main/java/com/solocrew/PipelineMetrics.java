@@ -0,0 +1,162 @@
+package com.solocrew;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Micrometer meters for each stage of the voice pipeline, so a slow turn can be broken down into
+ * where its time went. Everything is under {@code voice.*} and scraped from
+ * {@code /actuator/prometheus}; latencies are published as percentile histograms.
+ *
+ * <ul>
+ *   <li>{@code voice.sessions.active} (side = client | upstream)</li>
+ *   <li>{@code voice.audio.frames}, {@code voice.audio.bytes} (stage = received | forwarded, after
+ *       preprocessing and the gate)</li>
+ *   <li>{@code voice.stt.handshake} (outcome)</li>
+ *   <li>{@code voice.stt.final.latency}: end of speech, as seen by the gate, to final transcript</li>
+ *   <li>{@code voice.llm.latency} (mode = blocking | streaming, outcome), {@code voice.llm.tokens}
+ *       (type = prompt | completion)</li>
+ *   <li>{@code voice.llm.speculative} (outcome = reused | discarded | cancelled): replies requested
+ *       on the unformatted end of turn</li>
+ *   <li>{@code voice.tts.latency} (mode = buffered | streamed, cache = hit | miss, outcome),
+ *       {@code voice.tts.bytes}</li>
+ *   <li>{@code voice.turn.latency} (path = websocket | rest, outcome): final transcript, or upload
+ *       for REST, to the reply having been sent</li>
+ * </ul>
+ */
+@Component
+public class PipelineMetrics {
+
+    private static final Duration MIN_LATENCY = Duration.ofMillis(1);
+    private static final Duration MAX_LATENCY = Duration.ofSeconds(60);
+
+    private final MeterRegistry registry;
+
+    // Per-frame meters are resolved once, so the audio path does no registry lookups
+    private final Counter framesReceived;
+    private final Counter bytesReceived;
+    private final Counter framesForwarded;
+    private final Counter bytesForwarded;
+    private final Timer speechEndToFinal;
+    private final DistributionSummary promptTokens;
+    private final DistributionSummary completionTokens;
+
+    // Tagged meters, resolved on first use and then looked up by their tag values joined with '/'
+    private final Map<String, Timer> handshakeTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> chatTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> speculativeCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> speechTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> speechBytes = new ConcurrentHashMap<>();
+    private final Map<String, Timer> turnTimers = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.framesReceived = audioCounter("voice.audio.frames", "received");
+        this.bytesReceived = audioCounter("voice.audio.bytes", "received");
+        this.framesForwarded = audioCounter("voice.audio.frames", "forwarded");
+        this.bytesForwarded = audioCounter("voice.audio.bytes", "forwarded");
+        this.speechEndToFinal = latencyTimer("voice.stt.final.latency")
+                .description("End of speech to final transcript")
+                .register(registry);
+        this.promptTokens = DistributionSummary.builder("voice.llm.tokens")
+                .tag("type", "prompt")
+                .register(registry);
+        this.completionTokens = DistributionSummary.builder("voice.llm.tokens")
+                .tag("type", "completion")
+                .register(registry);
+    }
+
+    private Counter audioCounter(String name, String stage) {
+        return Counter.builder(name).tag("stage", stage).register(registry);
+    }
+
+    private static Timer.Builder latencyTimer(String name) {
+        return Timer.builder(name)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_LATENCY)
+                .maximumExpectedValue(MAX_LATENCY);
+    }
+
+    /** Outcome tag for a failed stage. */
+    public static String outcome(Throwable error) {
+        return error instanceof TimeoutException ? "timeout" : "error";
+    }
+
+    /** Publishes the size of a live session map; {@code side} is client or upstream. */
+    public void gaugeActiveSessions(String side, Map<?, ?> sessions) {
+        Gauge.builder("voice.sessions.active", sessions, Map::size)
+                .tag("side", side)
+                .register(registry);
+    }
+
+    public void recordAudioReceived(int bytes) {
+        framesReceived.increment();
+        bytesReceived.increment(bytes);
+    }
+
+    public void recordAudioForwarded(int bytes) {
+        framesForwarded.increment();
+        bytesForwarded.increment(bytes);
+    }
+
+    public void recordHandshake(long nanos, String outcome) {
+        handshakeTimers.computeIfAbsent(outcome, key -> latencyTimer("voice.stt.handshake")
+                        .tag("outcome", outcome)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSpeechEndToFinal(long nanos) {
+        speechEndToFinal.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordChatCompletion(String mode, String outcome, long nanos) {
+        chatTimers.computeIfAbsent(mode + '/' + outcome, key -> latencyTimer("voice.llm.latency")
+                        .tags("mode", mode, "outcome", outcome)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTokens(int prompt, int completion) {
+        promptTokens.record(prompt);
+        completionTokens.record(completion);
+    }
+
+    public void recordSpeculativeReply(String outcome) {
+        speculativeCounters.computeIfAbsent(outcome, key -> Counter.builder("voice.llm.speculative")
+                        .tag("outcome", outcome)
+                        .register(registry))
+                .increment();
+    }
+
+    public void recordSpeech(String mode, boolean cached, String outcome, long nanos, long bytes) {
+        String cache = cached ? "hit" : "miss";
+        speechTimers.computeIfAbsent(mode + '/' + cache + '/' + outcome, key -> latencyTimer("voice.tts.latency")
+                        .tags("mode", mode, "cache", cache, "outcome", outcome)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (bytes > 0) {
+            speechBytes.computeIfAbsent(mode, key -> DistributionSummary.builder("voice.tts.bytes")
+                            .tag("mode", mode)
+                            .register(registry))
+                    .record(bytes);
+        }
+    }
+
+    public void recordTurn(String path, String outcome, long nanos) {
+        turnTimers.computeIfAbsent(path + '/' + outcome, key -> latencyTimer("voice.turn.latency")
+                        .tags("path", path, "outcome", outcome)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,29 @@
+package com.solocrew;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+/**
+ * Helpers for the blocking facades kept alongside the reactive service methods.
+ */
+public final class ReactiveSupport {
+
+    private ReactiveSupport() {
+    }
+
+    /**
+     * Blocks for the result and rethrows the Mono's error as-is, rather than wrapped in the
+     * unchecked exception Reactor uses to smuggle checked exceptions out of {@code block()}.
+     */
+    public static <T> T block(Mono<T> mono) throws Exception {
+        try {
+            return mono.block();
+        } catch (RuntimeException e) {
+            Throwable cause = Exceptions.unwrap(e);
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.solocrew;
 
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Configuration;
 
 
 @Configuration
 public class SSLConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SSLConfig.class);
+
     @PostConstruct
     public void configureSSL() {
         // Configure TLS for better compatibility
@@ -15,8 +19,7 @@ public class SSLConfig {
         System.setProperty("javax.net.ssl.trustStore", System.getProperty("java.home") + "/lib/security/cacerts");
         System.setProperty("javax.net.ssl.trustStorePassword", "changeit");
         
-        System.out.println("SSL configuration applied globally");
-        System.out.println("Java version: " + System.getProperty("java.version"));
-        System.out.println("TLS protocols: " + System.getProperty("https.protocols"));
+        log.debug("SSL configuration applied globally (Java {}, TLS protocols {})",
+                System.getProperty("java.version"), System.getProperty("https.protocols"));
     }
 }
\ No newline at end of file
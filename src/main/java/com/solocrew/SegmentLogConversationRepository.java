@@ -0,0 +1,961 @@
+package com.solocrew;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Default {@link ConversationRepository}: a local append-only log split into segments, plus
+ * periodic snapshots.
+ *
+ * <p>Appends are encoded on the caller's thread and queued; a single writer thread writes them
+ * in batches and forces each batch to disk once, so up to {@code fsync-interval-ms} of changes
+ * can be lost in a crash. Segments roll over at {@code segment-max-bytes}. Once the segments
+ * since the last snapshot grow past {@code compaction-threshold-bytes} (or at least every
+ * {@code compaction-interval-ms}), the writer folds the previous snapshot and those segments into
+ * a new snapshot holding one record per conversation, with a sorted hash index beside it, and
+ * deletes what it replaced.
+ *
+ * <p>Startup only lists the directory and maps the latest snapshot, so it takes the same time
+ * however many conversations are stored. A conversation is rebuilt on first use by looking it up
+ * in the snapshot index and replaying its records from the newer segments, all read through
+ * memory mappings. The writer indexes those newer segments when it starts, before writing
+ * anything, which costs at most one scan of {@code compaction-threshold-bytes}; lookups made
+ * meanwhile wait for it.
+ *
+ * <p>Compaction also enforces {@code retention-ms}: a conversation with no changes for that long
+ * is left out of the new snapshot. Snapshots are mapped whole and addressed with int offsets, so
+ * a compaction that would take one past 2 GB is abandoned, leaving the segments in place, and
+ * only retried every {@code compaction-interval-ms}; lower the retention if that happens.
+ *
+ * <p>Every record is {@code [int length][int CRC32][body]}; a torn or corrupt record ends the
+ * segment it is in.
+ */
+@Component
+@ConditionalOnProperty(name = "conversation.persistence.type", havingValue = "segment-log", matchIfMissing = true)
+public class SegmentLogConversationRepository implements ConversationRepository, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentLogConversationRepository.class);
+
+    @Value("${conversation.persistence.directory:data/conversations}")
+    private String directory;
+
+    @Value("${conversation.persistence.fsync-interval-ms:20}")
+    private long fsyncIntervalMs;
+
+    @Value("${conversation.persistence.segment-max-bytes:16777216}")
+    private long segmentMaxBytes;
+
+    @Value("${conversation.persistence.compaction-threshold-bytes:67108864}")
+    private long compactionThresholdBytes;
+
+    @Value("${conversation.persistence.compaction-interval-ms:600000}")
+    private long compactionIntervalMs;
+
+    @Value("${conversation.persistence.retention-ms:2592000000}")
+    private long retentionMs;
+
+    private static final byte TYPE_MESSAGE = 1;
+    private static final byte TYPE_SUMMARY = 2;
+    private static final byte TYPE_CONVERSATION = 3;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private static final int MAX_BATCH_RECORDS = 1024;
+    private static final long IDLE_POLL_MS = 1000;
+    private static final long LOAD_WAIT_MS = 5000;
+    // Largest file that can be mapped whole and addressed with int offsets
+    private static final long MAX_MAPPED_BYTES = Integer.MAX_VALUE;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_DATA_SUFFIX = ".dat";
+    private static final String SNAPSHOT_INDEX_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private Path directoryPath;
+    private final LinkedBlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong enqueuedRecords = new AtomicLong();
+    // The newest record queued for each conversation, until the writer has processed it
+    private final ConcurrentHashMap<String, PendingRecord> lastPending = new ConcurrentHashMap<>();
+    private Thread writer;
+
+    // Owned by the writer thread
+    private FileChannel activeChannel;
+    private long lastCompactionMillis;
+    private boolean lastCompactionFailed;
+
+    // Everything below is guarded by lock; only the writer thread changes it
+    private final Object lock = new Object();
+    private long activeSeq;
+    private long activeBytes;
+    private long tailBytes;
+    private final TreeMap<Long, Long> segmentSizes = new TreeMap<>();
+    private final Map<Long, MappedByteBuffer> segmentMappings = new HashMap<>();
+    // Record positions ({segment, offset}) per conversation in the segments newer than the snapshot
+    private Map<String, List<long[]>> tailIndex;
+    private Snapshot snapshot;
+
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadMisses = new AtomicLong();
+    private final AtomicLong fsyncBatches = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong compactionNanos = new AtomicLong();
+    private final AtomicLong expiredConversations = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (segmentMaxBytes > MAX_MAPPED_BYTES / 2) {
+            // Segments overshoot the limit by up to a batch, and must stay mappable with int offsets
+            throw new IllegalStateException("conversation.persistence.segment-max-bytes must be at most 1 GB");
+        }
+        directoryPath = Paths.get(directory);
+        Files.createDirectories(directoryPath);
+
+        List<Long> segments = new ArrayList<>();
+        List<Long> snapshots = new ArrayList<>();
+        Map<Long, Path> snapshotData = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directoryPath)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // Left behind by a compaction that did not finish
+                    Files.deleteIfExists(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(parseSeq(name, SEGMENT_PREFIX, SEGMENT_SUFFIX));
+                } else if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_INDEX_SUFFIX)) {
+                    snapshots.add(parseSeq(name, SNAPSHOT_PREFIX, SNAPSHOT_INDEX_SUFFIX));
+                } else if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_DATA_SUFFIX)) {
+                    snapshotData.put(parseSeq(name, SNAPSHOT_PREFIX, SNAPSHOT_DATA_SUFFIX), file);
+                }
+            }
+        }
+
+        // The index is written last, so a snapshot counts only once its index exists. It covers
+        // every segment numbered below its own sequence number.
+        long snapshotSeq = snapshots.stream().max(Comparator.naturalOrder()).orElse(-1L);
+        for (long seq : snapshots) {
+            if (seq != snapshotSeq) {
+                deleteSnapshotFiles(seq);
+            }
+        }
+        // Data without an index: a crash between the two renames, whose segments are still in place
+        for (Map.Entry<Long, Path> data : snapshotData.entrySet()) {
+            if (data.getKey() != snapshotSeq) {
+                Files.deleteIfExists(data.getValue());
+            }
+        }
+        if (snapshotSeq >= 0) {
+            snapshot = Snapshot.open(snapshotDataPath(snapshotSeq), snapshotIndexPath(snapshotSeq), snapshotSeq);
+        }
+
+        long nextSeq = Math.max(snapshotSeq, 0);
+        for (long seq : segments) {
+            if (seq < snapshotSeq || Files.size(segmentPath(seq)) == 0) {
+                Files.deleteIfExists(segmentPath(seq));
+            } else {
+                long size = Files.size(segmentPath(seq));
+                segmentSizes.put(seq, size);
+                tailBytes += size;
+                nextSeq = Math.max(nextSeq, seq + 1);
+            }
+        }
+
+        // Never append to a segment from a previous run: its tail may be torn
+        openActiveSegment(nextSeq);
+        lastCompactionMillis = System.currentTimeMillis();
+
+        writer = new Thread(this::runWriter, "conversation-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        log.info("Conversation log opened in {}: snapshot {}, {} segments after it, {} bytes", directoryPath,
+                snapshot != null ? snapshot.seq + " (" + snapshot.count + " conversations)" : "none",
+                segmentSizes.size() - 1, tailBytes);
+    }
+
+    /**
+     * Stops the writer once everything queued so far is written and forced. The writer is never
+     * interrupted: an interrupt during a channel operation closes the channel, losing the batch.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer != null) {
+            queue.add(STOP);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    @Override
+    public void appendMessage(String uuid, ConversationMessage message) {
+        byte[] id = utf8(uuid);
+        byte[] role = utf8(message.getRole());
+        byte[] content = utf8(message.getContent());
+        ByteBuffer body = ByteBuffer.allocate(1 + 4 + id.length + 4 + role.length + 4 + content.length);
+        body.put(TYPE_MESSAGE);
+        putBytes(body, id);
+        putBytes(body, role);
+        putBytes(body, content);
+        enqueue(uuid, body.array());
+    }
+
+    @Override
+    public void appendSummary(String uuid, ConversationMessage summary, int summarizedMessageCount) {
+        byte[] id = utf8(uuid);
+        byte[] content = utf8(summary.getContent());
+        ByteBuffer body = ByteBuffer.allocate(1 + 4 + id.length + 4 + 4 + content.length);
+        body.put(TYPE_SUMMARY);
+        putBytes(body, id);
+        body.putInt(summarizedMessageCount);
+        putBytes(body, content);
+        enqueue(uuid, body.array());
+    }
+
+    private void enqueue(String uuid, byte[] body) {
+        PendingRecord record = new PendingRecord(uuid, body);
+        enqueuedRecords.incrementAndGet();
+        // Appends for one conversation are serialised by its lock, so this is its newest record
+        lastPending.put(uuid, record);
+        queue.add(record);
+    }
+
+    @Override
+    public StoredConversation load(String uuid) {
+        loads.incrementAndGet();
+        try {
+            // Changes made just before the conversation was evicted may still be queued
+            PendingRecord pending = lastPending.get(uuid);
+            if (pending != null) {
+                awaitWritten(pending);
+            }
+            synchronized (lock) {
+                awaitTailIndex();
+                StoredConversation conversation = snapshot != null ? snapshot.find(uuid) : null;
+                List<long[]> positions = tailIndex.get(uuid);
+                if (positions != null) {
+                    if (conversation == null) {
+                        conversation = new StoredConversation();
+                    }
+                    for (long[] position : positions) {
+                        ByteBuffer segment = segmentView(position[0]);
+                        apply(conversation, readBody(segment, (int) position[1]));
+                    }
+                }
+                if (conversation == null) {
+                    loadMisses.incrementAndGet();
+                }
+                return conversation;
+            }
+        } catch (IOException e) {
+            log.atWarn().addKeyValue("conversation", uuid).log("Failed to load conversation from the log: {}", e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Waits until the writer has processed {@code record}, and with it every earlier record of the
+     * same conversation.
+     */
+    private void awaitWritten(PendingRecord record) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + LOAD_WAIT_MS;
+        synchronized (lock) {
+            long remaining;
+            while (!record.processed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                lock.wait(remaining);
+            }
+        }
+    }
+
+    /**
+     * Waits for the writer to finish indexing the segments at startup. Caller holds lock.
+     */
+    private void awaitTailIndex() throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + LOAD_WAIT_MS;
+        long remaining;
+        while (tailIndex == null && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            lock.wait(remaining);
+        }
+        if (tailIndex == null) {
+            throw new IOException("conversation log segments are not indexed yet");
+        }
+    }
+
+    // ---- writer thread ----
+
+    private void runWriter() {
+        List<PendingRecord> batch = new ArrayList<>();
+        boolean stopping = false;
+        try {
+            buildTailIndex();
+        } catch (IOException e) {
+            // Retried before the next compaction, which needs the index
+            log.warn("Failed to index conversation log segments: {}", e.getMessage());
+        }
+        while (!stopping) {
+            try {
+                PendingRecord first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    maybeCompact();
+                    continue;
+                }
+                batch.add(first);
+                if (first != STOP) {
+                    collectBatch(batch);
+                }
+                queue.drainTo(batch, MAX_BATCH_RECORDS - batch.size());
+                stopping = batch.remove(STOP);
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+                if (!stopping) {
+                    maybeCompact();
+                }
+            } catch (InterruptedException e) {
+                // Not expected, the writer is stopped with STOP; whatever was collected is written next pass
+            } catch (IOException e) {
+                writeFailures.incrementAndGet();
+                log.warn("Conversation log write failed: {}", e.getMessage());
+            }
+        }
+        // Appends that raced with shutdown
+        while (queue.drainTo(batch, MAX_BATCH_RECORDS) > 0) {
+            try {
+                writeBatch(batch);
+            } catch (IOException e) {
+                writeFailures.incrementAndGet();
+                log.warn("Conversation log write failed: {}", e.getMessage());
+            }
+        }
+        try {
+            activeChannel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close conversation log segment: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Group commit: keeps collecting appends for up to one fsync interval after the first, so a
+     * burst of turns costs one force instead of one per record.
+     */
+    private void collectBatch(List<PendingRecord> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        while (batch.size() < MAX_BATCH_RECORDS) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            if (next == STOP) {
+                return;
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingRecord> batch) throws IOException {
+        try {
+            int total = 0;
+            for (PendingRecord record : batch) {
+                total += HEADER_BYTES + record.body.length;
+            }
+            ByteBuffer out = ByteBuffer.allocate(total);
+            long[] offsets = new long[batch.size()];
+            CRC32 crc = new CRC32();
+            for (int i = 0; i < batch.size(); i++) {
+                byte[] body = batch.get(i).body;
+                offsets[i] = activeBytes + out.position();
+                crc.reset();
+                crc.update(body);
+                out.putInt(body.length).putInt((int) crc.getValue()).put(body);
+            }
+            out.flip();
+            // Positional writes, so a failed batch is simply overwritten by the next one
+            long position = activeBytes;
+            while (out.hasRemaining()) {
+                position += activeChannel.write(out, position);
+            }
+            activeChannel.force(false);
+
+            synchronized (lock) {
+                activeBytes += total;
+                tailBytes += total;
+                segmentSizes.put(activeSeq, activeBytes);
+                if (tailIndex != null) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        tailIndex.computeIfAbsent(batch.get(i).uuid, key -> new ArrayList<>()).add(new long[]{activeSeq, offsets[i]});
+                    }
+                }
+            }
+            fsyncBatches.incrementAndGet();
+            bytesWritten.addAndGet(total);
+        } finally {
+            synchronized (lock) {
+                for (PendingRecord record : batch) {
+                    record.processed = true;
+                    lastPending.remove(record.uuid, record);
+                }
+                lock.notifyAll();
+            }
+            batch.clear();
+        }
+        if (activeBytes >= segmentMaxBytes) {
+            openActiveSegment(activeSeq + 1);
+        }
+    }
+
+    private void openActiveSegment(long seq) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(seq), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+        activeChannel = channel;
+        synchronized (lock) {
+            activeSeq = seq;
+            activeBytes = 0;
+            segmentSizes.put(seq, 0L);
+        }
+    }
+
+    private void maybeCompact() {
+        if (tailIndex == null) {
+            try {
+                buildTailIndex();
+            } catch (IOException e) {
+                log.warn("Failed to index conversation log segments: {}", e.getMessage());
+                return;
+            }
+        }
+        boolean due;
+        synchronized (lock) {
+            // After a failure only the interval triggers, so a compaction that cannot succeed is not retried back to back
+            due = (tailBytes >= compactionThresholdBytes && !lastCompactionFailed)
+                    || (tailBytes > 0 && System.currentTimeMillis() - lastCompactionMillis >= compactionIntervalMs);
+        }
+        if (!due) {
+            return;
+        }
+        try {
+            compact();
+            lastCompactionFailed = false;
+        } catch (IOException e) {
+            lastCompactionFailed = true;
+            log.warn("Conversation log compaction failed: {}", e.getMessage());
+        }
+        lastCompactionMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Folds the current snapshot and every sealed segment into a new snapshot, dropping
+     * conversations past retention. Runs on the writer thread, so nothing is appended meanwhile;
+     * appends simply queue up.
+     */
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        // Seal everything written so far; the new snapshot covers all segments below this one
+        openActiveSegment(activeSeq + 1);
+        long snapshotSeq = activeSeq;
+
+        Snapshot previous;
+        Map<String, List<long[]>> sealed;
+        synchronized (lock) {
+            previous = snapshot;
+            sealed = tailIndex;
+        }
+
+        Path dataTemp = snapshotDataPath(snapshotSeq).resolveSibling(SNAPSHOT_PREFIX + snapshotSeq + SNAPSHOT_DATA_SUFFIX + TEMP_SUFFIX);
+        Path indexTemp = snapshotIndexPath(snapshotSeq).resolveSibling(SNAPSHOT_PREFIX + snapshotSeq + SNAPSHOT_INDEX_SUFFIX + TEMP_SUFFIX);
+        List<long[]> entries = new ArrayList<>();
+        Set<String> folded = new HashSet<>();
+        long now = System.currentTimeMillis();
+        long[] expired = {0};
+
+        try {
+            try (FileOutputStream file = new FileOutputStream(dataTemp.toFile());
+                 BufferedOutputStream out = new BufferedOutputStream(file, 1 << 16)) {
+                long[] position = {0};
+                Snapshot.Visitor emit = (uuid, lastActiveMillis, conversation) -> {
+                    try {
+                        List<long[]> positions = sealed.get(uuid);
+                        if (positions != null) {
+                            for (long[] record : positions) {
+                                ByteBuffer segment;
+                                synchronized (lock) {
+                                    segment = segmentView(record[0]);
+                                }
+                                apply(conversation, readBody(segment, (int) record[1]));
+                            }
+                            folded.add(uuid);
+                            // Changed since the last compaction, which is at most one interval ago
+                            lastActiveMillis = now;
+                        }
+                        if (retentionMs > 0 && now - lastActiveMillis > retentionMs) {
+                            expired[0]++;
+                            return;
+                        }
+                        byte[] body = encodeConversation(uuid, lastActiveMillis, conversation);
+                        if (position[0] + HEADER_BYTES + body.length > MAX_MAPPED_BYTES) {
+                            throw new IOException("snapshot would exceed 2 GB after " + entries.size()
+                                    + " conversations; lower conversation.persistence.retention-ms");
+                        }
+                        CRC32 crc = new CRC32();
+                        crc.update(body);
+                        out.write(ByteBuffer.allocate(HEADER_BYTES).putInt(body.length).putInt((int) crc.getValue()).array());
+                        out.write(body);
+                        entries.add(new long[]{hash(uuid), position[0]});
+                        position[0] += HEADER_BYTES + body.length;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+                try {
+                    if (previous != null) {
+                        previous.forEach(emit);
+                    }
+                    for (String uuid : sealed.keySet()) {
+                        if (!folded.contains(uuid)) {
+                            emit.accept(uuid, now, new StoredConversation());
+                        }
+                    }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                out.flush();
+                file.getChannel().force(true);
+            }
+
+            entries.sort((a, b) -> Long.compare(a[0], b[0]));
+            ByteBuffer index = ByteBuffer.allocate(4 + entries.size() * INDEX_ENTRY_BYTES);
+            index.putInt(entries.size());
+            for (long[] entry : entries) {
+                index.putLong(entry[0]).putLong(entry[1]);
+            }
+            index.flip();
+            try (FileChannel channel = FileChannel.open(indexTemp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (index.hasRemaining()) {
+                    channel.write(index);
+                }
+                channel.force(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The sealed segments stay in place, so nothing is lost; only the partial snapshot goes
+            Files.deleteIfExists(dataTemp);
+            Files.deleteIfExists(indexTemp);
+            throw e;
+        }
+
+        // The index appearing under its final name is the commit point
+        Files.move(dataTemp, snapshotDataPath(snapshotSeq), StandardCopyOption.ATOMIC_MOVE);
+        Files.move(indexTemp, snapshotIndexPath(snapshotSeq), StandardCopyOption.ATOMIC_MOVE);
+        Snapshot next = Snapshot.open(snapshotDataPath(snapshotSeq), snapshotIndexPath(snapshotSeq), snapshotSeq);
+
+        List<Long> obsolete;
+        synchronized (lock) {
+            snapshot = next;
+            obsolete = new ArrayList<>(segmentSizes.headMap(snapshotSeq).keySet());
+            segmentSizes.headMap(snapshotSeq).clear();
+            segmentMappings.keySet().removeIf(seq -> seq < snapshotSeq);
+            tailIndex = new HashMap<>();
+            tailBytes = activeBytes;
+        }
+        for (long seq : obsolete) {
+            Files.deleteIfExists(segmentPath(seq));
+        }
+        if (previous != null) {
+            deleteSnapshotFiles(previous.seq);
+        }
+
+        long durationNanos = System.nanoTime() - start;
+        compactions.incrementAndGet();
+        compactionNanos.addAndGet(durationNanos);
+        expiredConversations.addAndGet(expired[0]);
+        log.info("Compacted conversation log into snapshot {}: {} conversations, {} expired, in {} ms",
+                snapshotSeq, entries.size(), expired[0], TimeUnit.NANOSECONDS.toMillis(durationNanos));
+    }
+
+    // ---- reading ----
+
+    /**
+     * Indexes the segments newer than the snapshot. Runs on the writer thread, so the segments
+     * cannot change meanwhile, and scans through its own mappings without holding lock; loads
+     * wait until the index is published.
+     */
+    private void buildTailIndex() throws IOException {
+        Map<String, List<long[]>> index = new HashMap<>();
+        Map<Long, MappedByteBuffer> mappings = new HashMap<>();
+        for (Map.Entry<Long, Long> segment : segmentSizes.entrySet()) {
+            long seq = segment.getKey();
+            MappedByteBuffer mapping;
+            try (FileChannel channel = FileChannel.open(segmentPath(seq), StandardOpenOption.READ)) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(segment.getValue(), channel.size()));
+            }
+            mappings.put(seq, mapping);
+            ByteBuffer view = mapping.duplicate();
+            int limit = view.capacity();
+            int offset = 0;
+            ByteBuffer body;
+            while ((body = readBody(view, offset, limit)) != null) {
+                body.get();
+                String uuid = getString(body);
+                index.computeIfAbsent(uuid, key -> new ArrayList<>()).add(new long[]{seq, offset});
+                offset += HEADER_BYTES + body.limit();
+            }
+        }
+        synchronized (lock) {
+            mappings.forEach(segmentMappings::putIfAbsent);
+            tailIndex = index;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Read-only mapping of a segment, remapped when the segment has grown since. Caller holds lock.
+     */
+    private ByteBuffer segmentView(long seq) throws IOException {
+        long size = segmentSizes.getOrDefault(seq, 0L);
+        MappedByteBuffer mapping = segmentMappings.get(seq);
+        if (mapping == null || mapping.capacity() < size) {
+            try (FileChannel channel = FileChannel.open(segmentPath(seq), StandardOpenOption.READ)) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, channel.size()));
+            }
+            segmentMappings.put(seq, mapping);
+        }
+        return mapping.duplicate();
+    }
+
+    private static ByteBuffer readBody(ByteBuffer buffer, int offset) throws IOException {
+        ByteBuffer body = readBody(buffer, offset, buffer.capacity());
+        if (body == null) {
+            throw new IOException("Corrupt conversation log record at offset " + offset);
+        }
+        return body;
+    }
+
+    /**
+     * Returns the body of the record at {@code offset}, or null if there is no complete, intact
+     * record there.
+     */
+    private static ByteBuffer readBody(ByteBuffer buffer, int offset, int limit) {
+        if (offset + HEADER_BYTES > limit) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > limit - offset - HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer body = buffer.slice(offset + HEADER_BYTES, length);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+            return null;
+        }
+        return body;
+    }
+
+    private static void apply(StoredConversation conversation, ByteBuffer body) {
+        byte type = body.get();
+        getString(body);
+        if (type == TYPE_MESSAGE) {
+            String role = getString(body);
+            conversation.addMessage(new ConversationMessage(role, getString(body)));
+        } else if (type == TYPE_SUMMARY) {
+            int summarizedMessageCount = body.getInt();
+            conversation.applySummary(new ConversationMessage("system", getString(body)), summarizedMessageCount);
+        }
+    }
+
+    /**
+     * A snapshot record: {@code [type][uuid][long last active millis][summary][int count]} then
+     * role and content per message.
+     */
+    private static byte[] encodeConversation(String uuid, long lastActiveMillis, StoredConversation conversation) {
+        List<byte[]> parts = new ArrayList<>();
+        int size = 1 + 4 + 8 + 4 + 4;
+        byte[] id = utf8(uuid);
+        size += id.length;
+        byte[] summary = conversation.getSummary() != null ? utf8(conversation.getSummary().getContent()) : null;
+        size += summary != null ? summary.length : 0;
+        for (ConversationMessage message : conversation.getMessages()) {
+            byte[] role = utf8(message.getRole());
+            byte[] content = utf8(message.getContent());
+            parts.add(role);
+            parts.add(content);
+            size += 8 + role.length + content.length;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(size);
+        body.put(TYPE_CONVERSATION);
+        putBytes(body, id);
+        body.putLong(lastActiveMillis);
+        putBytes(body, summary);
+        body.putInt(conversation.getMessages().size());
+        for (byte[] part : parts) {
+            putBytes(body, part);
+        }
+        return body.array();
+    }
+
+    /**
+     * Decodes a snapshot record positioned after its last active time.
+     */
+    private static StoredConversation decodeConversation(ByteBuffer body) {
+        StoredConversation conversation = new StoredConversation();
+        String summary = getString(body);
+        if (summary != null) {
+            conversation.applySummary(new ConversationMessage("system", summary), 0);
+        }
+        int count = body.getInt();
+        for (int i = 0; i < count; i++) {
+            String role = getString(body);
+            conversation.addMessage(new ConversationMessage(role, getString(body)));
+        }
+        return conversation;
+    }
+
+    // ---- encoding helpers ----
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    /** Length-prefixed bytes; a length of -1 stands for null. */
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** 64-bit FNV-1a over the UTF-8 bytes, used to key the snapshot index. */
+    private static long hash(String uuid) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : uuid.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // ---- files ----
+
+    private Path segmentPath(long seq) {
+        return directoryPath.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private Path snapshotDataPath(long seq) {
+        return directoryPath.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, seq, SNAPSHOT_DATA_SUFFIX));
+    }
+
+    private Path snapshotIndexPath(long seq) {
+        return directoryPath.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, seq, SNAPSHOT_INDEX_SUFFIX));
+    }
+
+    private void deleteSnapshotFiles(long seq) throws IOException {
+        Files.deleteIfExists(snapshotIndexPath(seq));
+        Files.deleteIfExists(snapshotDataPath(seq));
+    }
+
+    private static long parseSeq(String name, String prefix, String suffix) {
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    /**
+     * Log meters under {@code voice.conversations.log.*}: the write queue, fsync batches, bytes
+     * written, write failures, loads (result = hit | miss), compactions, conversations expired by
+     * retention, and the snapshot and segments on disk.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("voice.conversations.log.queue", queue, LinkedBlockingQueue::size)
+                .description("Records waiting for the writer thread")
+                .register(registry);
+        FunctionCounter.builder("voice.conversations.log.records", enqueuedRecords, AtomicLong::get).register(registry);
+        FunctionCounter.builder("voice.conversations.log.fsyncs", fsyncBatches, AtomicLong::get).register(registry);
+        FunctionCounter.builder("voice.conversations.log.written", bytesWritten, AtomicLong::get)
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("voice.conversations.log.write.failures", writeFailures, AtomicLong::get).register(registry);
+        FunctionCounter.builder("voice.conversations.log.expired", expiredConversations, AtomicLong::get)
+                .description("Conversations dropped by compaction for exceeding retention")
+                .register(registry);
+        FunctionCounter.builder("voice.conversations.log.loads", this, repository -> repository.loads.get() - repository.loadMisses.get())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("voice.conversations.log.loads", loadMisses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionTimer.builder("voice.conversations.log.compaction", this,
+                        repository -> repository.compactions.get(), repository -> repository.compactionNanos.get(),
+                        TimeUnit.NANOSECONDS)
+                .register(registry);
+        Gauge.builder("voice.conversations.log.snapshot.conversations", this, SegmentLogConversationRepository::snapshotConversations)
+                .register(registry);
+        Gauge.builder("voice.conversations.log.segments", this, SegmentLogConversationRepository::segmentCount)
+                .register(registry);
+        Gauge.builder("voice.conversations.log.segments.size", this, SegmentLogConversationRepository::segmentBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private double snapshotConversations() {
+        synchronized (lock) {
+            return snapshot != null ? snapshot.count : 0;
+        }
+    }
+
+    private double segmentCount() {
+        synchronized (lock) {
+            return segmentSizes.size();
+        }
+    }
+
+    private double segmentBytes() {
+        synchronized (lock) {
+            return tailBytes;
+        }
+    }
+
+    /** Queued by {@link #shutdown} after the last record to write. */
+    private static final PendingRecord STOP = new PendingRecord(null, null);
+
+    private static final class PendingRecord {
+        final String uuid;
+        final byte[] body;
+        // Written, or failed to be; guarded by lock
+        boolean processed;
+
+        PendingRecord(String uuid, byte[] body) {
+            this.uuid = uuid;
+            this.body = body;
+        }
+    }
+
+    /**
+     * A compacted snapshot: one record per conversation, and an index of
+     * {@code [int count]} followed by {@code [long hash][long offset]} entries sorted by hash.
+     */
+    private static final class Snapshot {
+        final long seq;
+        final int count;
+        private final MappedByteBuffer data;
+        private final MappedByteBuffer index;
+
+        private Snapshot(long seq, MappedByteBuffer data, MappedByteBuffer index) {
+            this.seq = seq;
+            this.data = data;
+            this.index = index;
+            this.count = index.getInt(0);
+        }
+
+        static Snapshot open(Path dataPath, Path indexPath, long seq) throws IOException {
+            try (FileChannel data = FileChannel.open(dataPath, StandardOpenOption.READ);
+                 FileChannel index = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+                return new Snapshot(seq,
+                        data.map(FileChannel.MapMode.READ_ONLY, 0, data.size()),
+                        index.map(FileChannel.MapMode.READ_ONLY, 0, index.size()));
+            }
+        }
+
+        StoredConversation find(String uuid) throws IOException {
+            long target = hash(uuid);
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (index.getLong(entryOffset(mid)) < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            // Walk every entry with this hash in case of collisions
+            for (int i = low; i < count && index.getLong(entryOffset(i)) == target; i++) {
+                ByteBuffer body = readBody(data, (int) index.getLong(entryOffset(i) + 8));
+                body.get();
+                if (uuid.equals(getString(body))) {
+                    body.getLong();
+                    return decodeConversation(body);
+                }
+            }
+            return null;
+        }
+
+        void forEach(Visitor visitor) {
+            ByteBuffer view = data.duplicate();
+            int offset = 0;
+            ByteBuffer body;
+            while ((body = readBody(view, offset, view.capacity())) != null) {
+                int length = body.limit();
+                body.get();
+                String uuid = getString(body);
+                long lastActiveMillis = body.getLong();
+                visitor.accept(uuid, lastActiveMillis, decodeConversation(body));
+                offset += HEADER_BYTES + length;
+            }
+        }
+
+        interface Visitor {
+            void accept(String uuid, long lastActiveMillis, StoredConversation conversation);
+        }
+
+        private static int entryOffset(int entry) {
+            return 4 + entry * INDEX_ENTRY_BYTES;
+        }
+    }
+}
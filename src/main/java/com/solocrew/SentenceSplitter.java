@@ -0,0 +1,57 @@
+package com.solocrew;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuts streamed text into sentences as soon as each one is known to be finished, so speech can
+ * be synthesised sentence by sentence while the rest of the reply is still being generated.
+ *
+ * <p>A sentence ends at {@code .}, {@code !}, {@code ?} or a newline once the following character
+ * is whitespace, which keeps "3.5" or a trailing "..." in one piece. Very short sentences are held
+ * back and merged with the next one, as a separate TTS request per "Oh." is not worth the round
+ * trip. Not thread-safe; one instance per reply.
+ */
+public class SentenceSplitter {
+
+    private static final int MIN_SENTENCE_CHARS = 20;
+
+    private final StringBuilder pending = new StringBuilder();
+    private int scanFrom;
+
+    /**
+     * Adds the next piece of text and returns the sentences it completed, possibly none.
+     */
+    public List<String> feed(String text) {
+        pending.append(text);
+        List<String> sentences = new ArrayList<>();
+        int sentenceStart = 0;
+
+        for (int i = Math.max(scanFrom, 1); i < pending.length(); i++) {
+            char previous = pending.charAt(i - 1);
+            boolean boundary = previous == '\n'
+                    || ((previous == '.' || previous == '!' || previous == '?') && Character.isWhitespace(pending.charAt(i)));
+            if (boundary && i - sentenceStart >= MIN_SENTENCE_CHARS) {
+                String sentence = pending.substring(sentenceStart, i).trim();
+                if (!sentence.isEmpty()) {
+                    sentences.add(sentence);
+                }
+                sentenceStart = i;
+            }
+        }
+
+        pending.delete(0, sentenceStart);
+        scanFrom = pending.length();
+        return sentences;
+    }
+
+    /**
+     * Returns whatever is left once the text is complete, or an empty string.
+     */
+    public String flush() {
+        String rest = pending.toString().trim();
+        pending.setLength(0);
+        scanFrom = 0;
+        return rest;
+    }
+}
@@ -0,0 +1,30 @@
+package com.solocrew;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A conversation as rebuilt from a {@link ConversationRepository}: the rolling summary, if any,
+ * and the messages after it. The system prompt is not stored.
+ */
+public class StoredConversation {
+    private ConversationMessage summary;
+    private final List<ConversationMessage> messages = new ArrayList<>();
+
+    public void addMessage(ConversationMessage message) {
+        messages.add(message);
+    }
+
+    public void applySummary(ConversationMessage summary, int summarizedMessageCount) {
+        messages.subList(0, Math.min(summarizedMessageCount, messages.size())).clear();
+        this.summary = summary;
+    }
+
+    public ConversationMessage getSummary() {
+        return summary;
+    }
+
+    public List<ConversationMessage> getMessages() {
+        return messages;
+    }
+}
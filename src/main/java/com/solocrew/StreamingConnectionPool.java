@@ -0,0 +1,152 @@
+package com.solocrew;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Warm pool of pre-established, unbound upstream streaming connections.
+ *
+ * <p>{@link #acquire} never blocks: it hands out an idle connection if one is ready and kicks
+ * off background connects to replace it. Idle connections older than the TTL are closed, and the
+ * rest are kept alive with a short frame of silence so the upstream does not end them for
+ * inactivity. Note that an upstream session is billed from the moment it opens.
+ */
+public class StreamingConnectionPool implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingConnectionPool.class);
+
+    /** 100 ms of 16 kHz 16-bit mono silence. */
+    private static final ByteBuffer KEEPALIVE_FRAME = ByteBuffer.allocate(3200).asReadOnlyBuffer();
+
+    private final Supplier<CompletableFuture<AssemblyAIStreamingServiceV2.UpstreamConnection>> connector;
+    private final int size;
+    private final long ttlNanos;
+
+    private final ConcurrentLinkedDeque<AssemblyAIStreamingServiceV2.UpstreamConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger connecting = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong timeSavedNanos = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong connectFailures = new AtomicLong();
+
+    public StreamingConnectionPool(Supplier<CompletableFuture<AssemblyAIStreamingServiceV2.UpstreamConnection>> connector,
+                                   int size, long ttlMs) {
+        this.connector = connector;
+        this.size = size;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+
+    /**
+     * Takes an idle connection, or returns null if none is ready. Either way a refill is started.
+     */
+    public AssemblyAIStreamingServiceV2.UpstreamConnection acquire() {
+        AssemblyAIStreamingServiceV2.UpstreamConnection connection;
+        try {
+            while ((connection = idle.pollFirst()) != null) {
+                if (isUsable(connection)) {
+                    hits.incrementAndGet();
+                    timeSavedNanos.addAndGet(connection.getHandshakeNanos());
+                    return connection;
+                }
+                discard(connection);
+            }
+            misses.incrementAndGet();
+            return null;
+        } finally {
+            refill();
+        }
+    }
+
+    /**
+     * Starts as many background connects as are needed to bring the pool back to its target size.
+     */
+    public void refill() {
+        while (!closed && idle.size() + connecting.get() < size) {
+            connecting.incrementAndGet();
+            connector.get().whenComplete((connection, throwable) -> {
+                connecting.decrementAndGet();
+                if (throwable != null) {
+                    connectFailures.incrementAndGet();
+                    log.warn("Failed to pre-warm AssemblyAI V2 connection: {}", throwable.getMessage());
+                    return;
+                }
+                if (closed) {
+                    connection.close();
+                } else {
+                    idle.addLast(connection);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops expired or dead connections, sends a keepalive on the rest and refills.
+     */
+    public void maintain() {
+        Iterator<AssemblyAIStreamingServiceV2.UpstreamConnection> iterator = idle.iterator();
+        while (iterator.hasNext()) {
+            AssemblyAIStreamingServiceV2.UpstreamConnection connection = iterator.next();
+            if (!isUsable(connection) || !connection.sendKeepalive(KEEPALIVE_FRAME.duplicate())) {
+                if (idle.remove(connection)) {
+                    discard(connection);
+                }
+            }
+        }
+        refill();
+    }
+
+    private boolean isUsable(AssemblyAIStreamingServiceV2.UpstreamConnection connection) {
+        return connection.isOpen() && System.nanoTime() - connection.getOpenedAtNanos() < ttlNanos;
+    }
+
+    private void discard(AssemblyAIStreamingServiceV2.UpstreamConnection connection) {
+        expired.incrementAndGet();
+        connection.close();
+    }
+
+    public void close() {
+        closed = true;
+        AssemblyAIStreamingServiceV2.UpstreamConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Pool meters. Handshake times of pool connects are in {@code voice.stt.handshake} with the
+     * others.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("voice.upstream.pool.idle", idle, ConcurrentLinkedDeque::size).register(registry);
+        Gauge.builder("voice.upstream.pool.connecting", connecting, AtomicInteger::get).register(registry);
+        FunctionCounter.builder("voice.upstream.pool.acquires", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("voice.upstream.pool.acquires", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("voice.upstream.pool.time.saved", timeSavedNanos, nanos -> nanos.get() / 1e9)
+                .description("Handshake time saved by handing out pooled connections")
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("voice.upstream.pool.expired", expired, AtomicLong::get).register(registry);
+        FunctionCounter.builder("voice.upstream.pool.connect.failures", connectFailures, AtomicLong::get).register(registry);
+    }
+}
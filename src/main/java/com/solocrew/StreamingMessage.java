@@ -0,0 +1,65 @@
+package com.solocrew;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * The fields of an upstream v3 streaming message ({@code Begin}, {@code Turn},
+ * {@code Termination}) the service acts on. Decoded with the streaming parser: partial turns
+ * arrive several times a second per speaking client and carry a per-word array the service never
+ * reads, so it is skipped token by token instead of being built into a tree.
+ *
+ * @param type           message type, or null if absent
+ * @param id             upstream session id ({@code Begin} only)
+ * @param transcript     turn text so far, empty if absent
+ * @param endOfTurn      whether the turn has ended
+ * @param turnIsFormatted whether the text is the formatted (final) version of the turn
+ */
+record StreamingMessage(String type, String id, String transcript, boolean endOfTurn, boolean turnIsFormatted) {
+
+    static final String BEGIN = "Begin";
+    static final String TURN = "Turn";
+    static final String TERMINATION = "Termination";
+
+    static StreamingMessage decode(JsonFactory factory, String json) throws IOException {
+        String type = null;
+        String id = null;
+        String transcript = "";
+        boolean endOfTurn = false;
+        boolean turnIsFormatted = false;
+
+        try (JsonParser parser = factory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "type":
+                        type = parser.getValueAsString();
+                        break;
+                    case "id":
+                        id = parser.getValueAsString();
+                        break;
+                    case "transcript":
+                        transcript = parser.getValueAsString("");
+                        break;
+                    case "end_of_turn":
+                        endOfTurn = value == JsonToken.VALUE_TRUE;
+                        break;
+                    case "turn_is_formatted":
+                        turnIsFormatted = value == JsonToken.VALUE_TRUE;
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        return new StreamingMessage(type, id, transcript, endOfTurn, turnIsFormatted);
+    }
+}
@@ -0,0 +1,102 @@
+package com.solocrew;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pulls the value of the {@code "reply"} string field out of a JSON object that arrives in
+ * arbitrary fragments, such as the assistant content of a streamed chat completion
+ * ({@code {"reply": "I hear you...", "isHumanInterventionNeeded": false}}).
+ *
+ * <p>Each call to {@link #feed} returns the newly decoded part of the reply, with JSON escapes
+ * resolved even when an escape sequence is split across fragments. Not thread-safe; one
+ * instance per completion.
+ */
+public class StreamingReplyExtractor {
+
+    private static final Pattern REPLY_KEY = Pattern.compile("\"reply\"\\s*:\\s*\"");
+
+    private enum State { SEEK_KEY, IN_VALUE, ESCAPE, UNICODE, DONE }
+
+    private State state = State.SEEK_KEY;
+    private final StringBuilder seekBuffer = new StringBuilder();
+    private final StringBuilder reply = new StringBuilder();
+    private int unicodeValue;
+    private int unicodeDigits;
+
+    /**
+     * Consumes the next fragment and returns the reply text it completed, possibly empty.
+     */
+    public String feed(String fragment) {
+        if (state == State.DONE || fragment.isEmpty()) {
+            return "";
+        }
+
+        String input = fragment;
+        if (state == State.SEEK_KEY) {
+            seekBuffer.append(fragment);
+            Matcher matcher = REPLY_KEY.matcher(seekBuffer);
+            if (!matcher.find()) {
+                return "";
+            }
+            input = seekBuffer.substring(matcher.end());
+            seekBuffer.setLength(0);
+            state = State.IN_VALUE;
+        }
+
+        int start = reply.length();
+        for (int i = 0; i < input.length() && state != State.DONE; i++) {
+            decode(input.charAt(i));
+        }
+        return reply.substring(start);
+    }
+
+    private void decode(char c) {
+        switch (state) {
+            case IN_VALUE:
+                if (c == '\\') {
+                    state = State.ESCAPE;
+                } else if (c == '"') {
+                    state = State.DONE;
+                } else {
+                    reply.append(c);
+                }
+                break;
+            case ESCAPE:
+                state = State.IN_VALUE;
+                switch (c) {
+                    case 'n': reply.append('\n'); break;
+                    case 't': reply.append('\t'); break;
+                    case 'r': reply.append('\r'); break;
+                    case 'b': reply.append('\b'); break;
+                    case 'f': reply.append('\f'); break;
+                    case 'u':
+                        state = State.UNICODE;
+                        unicodeValue = 0;
+                        unicodeDigits = 0;
+                        break;
+                    default: reply.append(c); // \" \\ \/
+                }
+                break;
+            case UNICODE:
+                unicodeValue = (unicodeValue << 4) | Character.digit(c, 16);
+                if (++unicodeDigits == 4) {
+                    reply.append((char) unicodeValue);
+                    state = State.IN_VALUE;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** True once the closing quote of the reply value has been seen. */
+    public boolean isComplete() {
+        return state == State.DONE;
+    }
+
+    /** Everything decoded so far. */
+    public String getReply() {
+        return reply.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.solocrew;
+
+import java.util.Locale;
+
+/**
+ * How closely two transcripts of the same turn agree, ignoring what formatting changes: case,
+ * punctuation and spacing. Used to decide whether a reply requested for the unformatted
+ * end-of-turn text still fits the formatted transcript that follows it.
+ *
+ * <p>The score is one minus the word-level edit distance over the length of the longer
+ * transcript, so 1.0 means the same words and 0.0 nothing in common.
+ */
+public final class TranscriptSimilarity {
+
+    private TranscriptSimilarity() {
+    }
+
+    public static double similarity(String a, String b) {
+        String[] wordsA = words(a);
+        String[] wordsB = words(b);
+        int longest = Math.max(wordsA.length, wordsB.length);
+        if (longest == 0) {
+            return 1.0;
+        }
+        return 1.0 - (double) editDistance(wordsA, wordsB) / longest;
+    }
+
+    private static String[] words(String text) {
+        String normalized = text.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}'\\s]", " ")
+                .trim();
+        return normalized.isEmpty() ? new String[0] : normalized.split("\\s+");
+    }
+
+    private static int editDistance(String[] a, String[] b) {
+        int[] previous = new int[b.length + 1];
+        int[] current = new int[b.length + 1];
+        for (int j = 0; j <= b.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length; i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length; j++) {
+                int substitution = previous[j - 1] + (a[i - 1].equals(b[j - 1]) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length];
+    }
+}
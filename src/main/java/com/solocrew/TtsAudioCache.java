@@ -0,0 +1,339 @@
+package com.solocrew;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache of synthesised speech, keyed by a hash of (text, voice, model, format).
+ *
+ * <p>Two tiers: an in-memory LRU bounded by total bytes, and an optional on-disk tier (one file
+ * per entry, read through a memory mapping) that survives restarts and is also LRU-bounded by
+ * bytes. Disk hits are promoted to memory; disk writes happen in the background so a miss is not
+ * slowed down by the filesystem.
+ */
+@Component
+public class TtsAudioCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(TtsAudioCache.class);
+
+    @Value("${tts.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tts.cache.memory.max-bytes:33554432}")
+    private long memoryMaxBytes;
+
+    @Value("${tts.cache.max-entry-bytes:1048576}")
+    private int maxEntryBytes;
+
+    @Value("${tts.cache.disk.enabled:false}")
+    private boolean diskEnabled;
+
+    @Value("${tts.cache.disk.directory:${java.io.tmpdir}/empathyai-tts-cache}")
+    private String diskDirectory;
+
+    @Value("${tts.cache.disk.max-bytes:536870912}")
+    private long diskMaxBytes;
+
+    private static final String FILE_SUFFIX = ".tts";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(64, 0.75f, true);
+    private long diskBytes;
+    private Path diskPath;
+    private ExecutorService diskWriter;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled || !diskEnabled) {
+            return;
+        }
+        diskPath = Paths.get(diskDirectory);
+        Files.createDirectories(diskPath);
+
+        // Partial writes from a previous run that stopped mid-write
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskPath, "*" + TEMP_SUFFIX)) {
+            for (Path temp : stream) {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        // Rebuild the LRU order from modification times, oldest first
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskPath, "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        synchronized (diskIndex) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long size = Files.size(file);
+                diskIndex.put(name.substring(0, name.length() - FILE_SUFFIX.length()), size);
+                diskBytes += size;
+            }
+        }
+        log.info("TTS disk cache loaded: {} entries, {} bytes in {}", files.size(), diskBytes, diskPath);
+
+        diskWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tts-cache-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (diskWriter != null) {
+            diskWriter.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public static String key(String text, String voice, String model, String format) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{model, voice, format, text}) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the cached audio, or null on a miss.
+     */
+    public byte[] get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (memory) {
+            byte[] audio = memory.get(key);
+            if (audio != null) {
+                memoryHits.incrementAndGet();
+                return audio;
+            }
+        }
+        byte[] audio = readFromDisk(key);
+        if (audio != null) {
+            diskHits.incrementAndGet();
+            putInMemory(key, audio);
+            return audio;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, byte[] audio) {
+        if (!enabled || audio.length == 0 || audio.length > maxEntryBytes) {
+            return;
+        }
+        putInMemory(key, audio);
+        if (diskWriter != null) {
+            diskWriter.execute(() -> writeToDisk(key, audio));
+        }
+    }
+
+    private void putInMemory(String key, byte[] audio) {
+        synchronized (memory) {
+            byte[] previous = memory.put(key, audio);
+            memoryBytes += audio.length - (previous != null ? previous.length : 0);
+            Iterator<Map.Entry<String, byte[]>> eldest = memory.entrySet().iterator();
+            while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+                Map.Entry<String, byte[]> entry = eldest.next();
+                memoryBytes -= entry.getValue().length;
+                eldest.remove();
+                memoryEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    private byte[] readFromDisk(String key) {
+        if (diskPath == null) {
+            return null;
+        }
+        synchronized (diskIndex) {
+            if (diskIndex.get(key) == null) {
+                return null;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(diskPath.resolve(key + FILE_SUFFIX), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] audio = new byte[mapped.remaining()];
+            mapped.get(audio);
+            return audio;
+        } catch (IOException e) {
+            log.warn("Failed to read TTS cache entry {}: {}", key, e.getMessage());
+            removeFromDiskIndex(key);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, byte[] audio) {
+        synchronized (diskIndex) {
+            if (diskIndex.containsKey(key)) {
+                return;
+            }
+        }
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(diskPath, key, TEMP_SUFFIX);
+            Files.write(temp, audio);
+            Files.move(temp, diskPath.resolve(key + FILE_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write TTS cache entry {}: {}", key, e.getMessage());
+            deleteQuietly(temp);
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (diskIndex) {
+            diskIndex.put(key, (long) audio.length);
+            diskBytes += audio.length;
+            Iterator<Map.Entry<String, Long>> eldest = diskIndex.entrySet().iterator();
+            while (diskBytes > diskMaxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                diskBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (String evictedKey : evicted) {
+            try {
+                Files.deleteIfExists(diskPath.resolve(evictedKey + FILE_SUFFIX));
+                diskEvictions.incrementAndGet();
+            } catch (IOException e) {
+                log.warn("Failed to delete TTS cache entry {}: {}", evictedKey, e.getMessage());
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void removeFromDiskIndex(String key) {
+        synchronized (diskIndex) {
+            Long size = diskIndex.remove(key);
+            if (size != null) {
+                diskBytes -= size;
+            }
+        }
+    }
+
+    /**
+     * Cache meters: {@code voice.tts.cache.lookups} (result = memory | disk | miss),
+     * {@code voice.tts.cache.evictions}, and entries and bytes held (tier = memory | disk).
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        lookupCounter(registry, "memory", memoryHits);
+        lookupCounter(registry, "disk", diskHits);
+        lookupCounter(registry, "miss", misses);
+        FunctionCounter.builder("voice.tts.cache.evictions", memoryEvictions, AtomicLong::get)
+                .tag("tier", "memory")
+                .register(registry);
+        FunctionCounter.builder("voice.tts.cache.evictions", diskEvictions, AtomicLong::get)
+                .tag("tier", "disk")
+                .register(registry);
+        Gauge.builder("voice.tts.cache.entries", this, TtsAudioCache::memoryEntries)
+                .tag("tier", "memory")
+                .register(registry);
+        Gauge.builder("voice.tts.cache.entries", this, TtsAudioCache::diskEntries)
+                .tag("tier", "disk")
+                .register(registry);
+        Gauge.builder("voice.tts.cache.size", this, TtsAudioCache::memoryBytes)
+                .tag("tier", "memory")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("voice.tts.cache.size", this, TtsAudioCache::diskBytes)
+                .tag("tier", "disk")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static void lookupCounter(MeterRegistry registry, String result, AtomicLong count) {
+        FunctionCounter.builder("voice.tts.cache.lookups", count, AtomicLong::get)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private double memoryEntries() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    private double memoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    private double diskEntries() {
+        synchronized (diskIndex) {
+            return diskIndex.size();
+        }
+    }
+
+    private double diskBytes() {
+        synchronized (diskIndex) {
+            return diskBytes;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.solocrew;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs conversation turns (transcript → chat → reply) off the threads that deliver transcripts.
+ *
+ * <p>Turns for the same conversation run strictly one after another in submission order; turns
+ * for different conversations run in parallel, up to {@code turns.executor.max-concurrency} at
+ * once. A turn may finish asynchronously by returning a {@link CompletionStage}; the next turn
+ * for that conversation waits for it to complete, not just for the supplier to return.
+ *
+ * <p>Because a turn waiting on its predecessor or on its own stage holds no thread, the executor
+ * queue alone does not bound them; at most {@code turns.executor.max-in-flight} turns may be
+ * submitted and not yet finished, and further submissions are rejected.
+ */
+@Component
+public class TurnProcessingExecutor implements MeterBinder {
+
+    @Value("${turns.executor.max-concurrency:32}")
+    private int maxConcurrency;
+
+    @Value("${turns.executor.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${turns.executor.max-in-flight:1000}")
+    private int maxInFlight;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> conversationTails = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private Semaphore inFlight;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "turn-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        inFlight = new Semaphore(maxInFlight);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public CompletableFuture<Void> submit(String conversationUuid, Runnable turn) {
+        return submitAsync(conversationUuid, () -> {
+            turn.run();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Queues a turn behind any earlier turns for the same conversation. The returned future fails
+     * with {@link RejectedExecutionException} if {@code max-in-flight} turns are already pending or
+     * the executor's queue is full.
+     */
+    public <T> CompletableFuture<T> submitAsync(String conversationUuid, Supplier<? extends CompletionStage<T>> turn) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Too many conversation turns in flight"));
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Held until the turn's stage completes, however it completes
+        result.whenComplete((value, throwable) -> inFlight.release());
+        CompletableFuture<Void> tail = conversationTails.compute(conversationUuid, (uuid, previous) -> {
+            CompletableFuture<Void> start = previous == null
+                    ? CompletableFuture.completedFuture(null)
+                    : previous.exceptionally(throwable -> null);
+            return start.thenComposeAsync(ignored -> {
+                CompletionStage<T> stage;
+                try {
+                    stage = turn.get();
+                } catch (Throwable throwable) {
+                    stage = CompletableFuture.failedFuture(throwable);
+                }
+                return stage.handle((value, throwable) -> {
+                    if (throwable != null) {
+                        result.completeExceptionally(throwable);
+                    } else {
+                        result.complete(value);
+                    }
+                    return null;
+                });
+            }, executor);
+        });
+        tail.whenComplete((ignored, throwable) -> {
+            conversationTails.remove(conversationUuid, tail);
+            if (throwable != null) {
+                // Only reached if the turn could not be scheduled at all
+                result.completeExceptionally(throwable);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Whether no turn is queued or running for the conversation.
+     */
+    public boolean isIdle(String conversationUuid) {
+        return !conversationTails.containsKey(conversationUuid);
+    }
+
+    /**
+     * Turn meters under {@code voice.turns.*}: turns running on a worker, waiting for one, and in
+     * flight against the {@code max-in-flight} limit, and conversations with a turn pending.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("voice.turns.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+        Gauge.builder("voice.turns.queued", executor, pool -> pool.getQueue().size()).register(registry);
+        Gauge.builder("voice.turns.in.flight", inFlight, permits -> maxInFlight - permits.availablePermits())
+                .register(registry);
+        Gauge.builder("voice.turns.conversations", conversationTails, Map::size).register(registry);
+    }
+}
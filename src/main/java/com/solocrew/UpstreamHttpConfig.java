@@ -0,0 +1,116 @@
+package com.solocrew;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.socket.nio.NioChannelOption;
+import jdk.net.ExtendedSocketOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * The HTTP client shared by all vendor API calls (AssemblyAI batch, OpenAI chat and speech). One
+ * connection pool per remote host, capped and with idle connections evicted in the background,
+ * TCP keep-alive, and HTTP/2 negotiated over TLS where the server offers it, so concurrent
+ * requests to one API share a few multiplexed connections instead of each paying a handshake.
+ *
+ * <p>Registered as the {@link ClientHttpConnector}, so every {@code WebClient.Builder} from the
+ * context uses it. Pool gauges are published as {@code reactor.netty.connection.provider.*}
+ * (total, active, idle and pending connections, tagged by remote address).
+ */
+@Configuration
+public class UpstreamHttpConfig {
+
+    @Value("${upstream.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${upstream.http.pending-acquire.max-count:1000}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${upstream.http.pending-acquire.timeout-ms:10000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${upstream.http.max-idle-time-ms:30000}")
+    private long maxIdleTimeMs;
+
+    @Value("${upstream.http.max-life-time-ms:300000}")
+    private long maxLifeTimeMs;
+
+    @Value("${upstream.http.evict-interval-ms:15000}")
+    private long evictIntervalMs;
+
+    @Value("${upstream.http.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${upstream.http.response-timeout-ms:30000}")
+    private long responseTimeoutMs;
+
+    @Value("${upstream.http.keepalive.idle-s:60}")
+    private int keepAliveIdleSeconds;
+
+    @Value("${upstream.http.keepalive.interval-s:15}")
+    private int keepAliveIntervalSeconds;
+
+    @Value("${upstream.http.keepalive.count:4}")
+    private int keepAliveCount;
+
+    @Value("${upstream.http.http2.enabled:true}")
+    private boolean http2Enabled;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider upstreamConnectionProvider() {
+        // maxConnections and the pending queue apply per remote host
+        return ConnectionProvider.builder("upstream")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeTimeMs))
+                .evictInBackground(Duration.ofMillis(evictIntervalMs))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public HttpClient upstreamHttpClient(ConnectionProvider upstreamConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(upstreamConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                // Between reads, so long streamed responses are fine as long as they keep flowing
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+        // Reactor Netty runs on the native epoll transport where available, which has its own options
+        if (Epoll.isAvailable()) {
+            httpClient = httpClient
+                    .option(EpollChannelOption.TCP_KEEPIDLE, keepAliveIdleSeconds)
+                    .option(EpollChannelOption.TCP_KEEPINTVL, keepAliveIntervalSeconds)
+                    .option(EpollChannelOption.TCP_KEEPCNT, keepAliveCount);
+        } else {
+            httpClient = httpClient
+                    .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE), keepAliveIdleSeconds)
+                    .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPINTERVAL), keepAliveIntervalSeconds)
+                    .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPCOUNT), keepAliveCount);
+        }
+        if (http2Enabled) {
+            // h2 is negotiated via ALPN on https; plain http (local stand-ins) stays on HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        return httpClient;
+    }
+
+    /**
+     * Picked up by Boot's {@code WebClient.Builder}, so services build their clients from the
+     * injected builder and get this pool along with the client metrics; none configures its own.
+     */
+    @Bean
+    public ClientHttpConnector upstreamClientHttpConnector(HttpClient upstreamHttpClient) {
+        return new ReactorClientHttpConnector(upstreamHttpClient);
+    }
+}
@@ -1,5 +1,7 @@
 package com.solocrew;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -9,16 +11,18 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    private static final Logger log = LoggerFactory.getLogger(WebSocketConfig.class);
+
     private final AudioStreamingWebSocketHandler audioStreamingHandler;
 
     public WebSocketConfig(AudioStreamingWebSocketHandler audioStreamingHandler) {
         this.audioStreamingHandler = audioStreamingHandler;
-        System.out.println("WebSocketConfig initialized with handler: " + audioStreamingHandler);
+        log.debug("WebSocketConfig initialized with handler: {}", audioStreamingHandler);
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        System.out.println("Registering WebSocket handlers...");
+        log.debug("Registering WebSocket handlers...");
         registry.addHandler(audioStreamingHandler, "/ws/audio-stream")
                 .setAllowedOrigins("*")
                 .withSockJS(); // Add SockJS fallback support
@@ -27,6 +31,6 @@ public class WebSocketConfig implements WebSocketConfigurer {
         registry.addHandler(audioStreamingHandler, "/ws/audio-stream-native")
                 .setAllowedOrigins("*");
         
-        System.out.println("WebSocket handlers registered successfully");
+        log.debug("WebSocket handlers registered successfully");
     }
 }
\ No newline at end of file
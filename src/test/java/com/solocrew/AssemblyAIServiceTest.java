@@ -0,0 +1,174 @@
+package com.solocrew;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs batch transcription against a local stub of the AssemblyAI transcript API. Fallback polls
+ * are pushed far out when webhooks are enabled, so a result within the test timeout means the
+ * webhook path completed it.
+ */
+class AssemblyAIServiceTest {
+
+    private static final String SECRET = "s3cret";
+    private static final String TRANSCRIPT_ID = "t-1";
+    private static final Duration RESULT_TIMEOUT = Duration.ofSeconds(5);
+
+    private HttpServer stub;
+    private final AtomicReference<String> status = new AtomicReference<>("processing");
+    private final AtomicInteger statusRequests = new AtomicInteger();
+    private volatile Runnable beforeTranscriptResponse = () -> { };
+
+    private AssemblyAIService service;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        stub.createContext("/v2/upload", exchange -> respond(exchange, "{\"upload_url\":\"https://cdn.example/audio\"}"));
+        stub.createContext("/v2/transcript", exchange -> {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                beforeTranscriptResponse.run();
+                respond(exchange, "{\"id\":\"" + TRANSCRIPT_ID + "\",\"status\":\"queued\"}");
+            } else {
+                statusRequests.incrementAndGet();
+                respond(exchange, "{\"id\":\"" + TRANSCRIPT_ID + "\",\"status\":\"" + status.get() + "\",\"text\":\"hello there\"}");
+            }
+        });
+        stub.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        if (service != null) {
+            service.shutdown();
+        }
+        stub.stop(0);
+    }
+
+    @Test
+    void webhookAfterRegistrationFetchesTranscriptImmediately() throws InterruptedException {
+        service = newService(true, 60_000);
+
+        var result = service.transcribeAudioAsync(audio()).toFuture();
+        awaitCondition(() -> registry.get("voice.stt.batch.outstanding").gauge().value() == 1);
+        assertEquals(0, statusRequests.get());
+
+        status.set("completed");
+        assertTrue(service.handleWebhook(SECRET, TRANSCRIPT_ID, "completed"));
+
+        assertEquals("hello there", result.orTimeout(RESULT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).join());
+        assertEquals(1, completions("webhook"));
+        assertEquals(0, completions("polling"));
+    }
+
+    @Test
+    void webhookBeforeRegistrationIsHeldUntilTranscriptIsRegistered() {
+        service = newService(true, 60_000);
+        status.set("completed");
+        // The transcript finishes and its webhook lands before the request's response is handled
+        beforeTranscriptResponse = () -> assertTrue(service.handleWebhook(SECRET, TRANSCRIPT_ID, "completed"));
+
+        String text = service.transcribeAudioAsync(audio()).block(RESULT_TIMEOUT);
+
+        assertEquals("hello there", text);
+        assertEquals(1, completions("webhook"));
+        assertEquals(1, statusRequests.get());
+    }
+
+    @Test
+    void pollsWithBackoffWhenWebhooksAreDisabled() throws InterruptedException {
+        service = newService(false, 60_000);
+        stub.createContext("/v2/transcript/" + TRANSCRIPT_ID, exchange -> {
+            String current = statusRequests.incrementAndGet() < 3 ? "processing" : "completed";
+            respond(exchange, "{\"id\":\"" + TRANSCRIPT_ID + "\",\"status\":\"" + current + "\",\"text\":\"hello there\"}");
+        });
+
+        String text = service.transcribeAudioAsync(audio()).block(RESULT_TIMEOUT);
+
+        assertEquals("hello there", text);
+        assertEquals(3, statusRequests.get());
+        assertEquals(1, completions("polling"));
+        // Deregistered as the result is delivered, possibly just after block() returns
+        awaitCondition(() -> registry.get("voice.stt.batch.outstanding").gauge().value() == 0);
+    }
+
+    @Test
+    void webhookWithWrongSecretIsRejected() {
+        service = newService(true, 60_000);
+
+        assertFalse(service.handleWebhook("s3cre", TRANSCRIPT_ID, "completed"));
+        assertFalse(service.handleWebhook("s3cret!", TRANSCRIPT_ID, "completed"));
+        assertFalse(service.handleWebhook(null, TRANSCRIPT_ID, "completed"));
+        assertEquals(0, registry.get("voice.stt.batch.webhooks").functionCounter().count());
+    }
+
+    private AssemblyAIService newService(boolean webhooks, long fallbackDelayMs) {
+        AssemblyAIService assemblyAI = new AssemblyAIService();
+        ReflectionTestUtils.setField(assemblyAI, "apiKey", "test-key");
+        ReflectionTestUtils.setField(assemblyAI, "baseUrl", "http://127.0.0.1:" + stub.getAddress().getPort());
+        ReflectionTestUtils.setField(assemblyAI, "webhookBaseUrl", webhooks ? "https://app.example" : "");
+        ReflectionTestUtils.setField(assemblyAI, "webhookSecret", SECRET);
+        ReflectionTestUtils.setField(assemblyAI, "pollInitialDelayMs", 10L);
+        ReflectionTestUtils.setField(assemblyAI, "pollMaxDelayMs", 50L);
+        ReflectionTestUtils.setField(assemblyAI, "pollBackoffMultiplier", 1.5);
+        ReflectionTestUtils.setField(assemblyAI, "webhookFallbackDelayMs", fallbackDelayMs);
+        ReflectionTestUtils.setField(assemblyAI, "transcriptTimeoutMs", 30_000L);
+        ReflectionTestUtils.setField(assemblyAI, "webClientBuilder", WebClient.builder());
+        ReflectionTestUtils.setField(assemblyAI, "objectMapper", new ObjectMapper());
+        assemblyAI.init();
+        registry = new SimpleMeterRegistry();
+        assemblyAI.bindTo(registry);
+        return assemblyAI;
+    }
+
+    private double completions(String via) {
+        return registry.get("voice.stt.batch.completions").tag("via", via).functionCounter().count();
+    }
+
+    private static ByteArrayResource audio() {
+        return new ByteArrayResource(new byte[4096]);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + RESULT_TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within " + RESULT_TIMEOUT);
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.solocrew;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioPreprocessorTest {
+
+    private final AudioPreprocessor.Stats stats = new AudioPreprocessor.Stats();
+
+    @Test
+    void passesUpstreamFormatThroughUnchanged() {
+        AudioPreprocessor preprocessor = ungated(AudioFormat.UPSTREAM);
+        ByteBuffer frame = pcm16(new short[]{100, -100, 2000, -2000});
+
+        assertSame(frame, preprocessor.process(frame));
+    }
+
+    @Test
+    void detectsWavHeaderAndSkipsIt() {
+        AudioPreprocessor preprocessor = ungated(null);
+        short[] samples = {1000, 2000, 3000, 4000};
+
+        ByteBuffer out = preprocessor.process(wav(16000, 1, pcm16(samples)));
+
+        assertEquals(AudioFormat.UPSTREAM, preprocessor.getFormat());
+        assertArrayEquals(samples, toShorts(out));
+    }
+
+    @Test
+    void rejectsCompressedAudioAndOutOfRangeWav() {
+        AudioPreprocessor ogg = ungated(null);
+        assertNull(ogg.process(ByteBuffer.wrap("OggS....".getBytes())));
+        assertTrue(ogg.isUnsupported());
+
+        AudioPreprocessor tooSlow = ungated(null);
+        assertNull(tooSlow.process(wav(4000, 1, pcm16(new short[]{1, 2}))));
+        assertTrue(tooSlow.isUnsupported());
+    }
+
+    @Test
+    void downmixesByAveragingChannels() {
+        AudioPreprocessor preprocessor = ungated(new AudioFormat(AudioFormat.Encoding.PCM_S16LE, 16000, 2));
+
+        short[] out = toShorts(preprocessor.process(pcm16(new short[]{20000, 4000, -8000, 8000, 16000, 16000})));
+
+        assertEquals(3, out.length);
+        assertEquals(12000, out[0], 1);
+        assertEquals(0, out[1], 1);
+        assertEquals(16000, out[2], 1);
+    }
+
+    @Test
+    void resamplesToSixteenKilohertz() {
+        AudioPreprocessor preprocessor = ungated(new AudioFormat(AudioFormat.Encoding.PCM_F32LE, 48000, 1));
+        // 100 ms of a 200 Hz tone at half scale
+        float[] tone = new float[4800];
+        for (int i = 0; i < tone.length; i++) {
+            tone[i] = (float) (0.5 * Math.sin(2 * Math.PI * 200 * i / 48000));
+        }
+
+        short[] out = toShorts(preprocessor.process(f32(tone)));
+
+        assertEquals(1600, out.length, 1);
+        // Past the filter's settling, each output sample is the input tone at a third of the rate
+        for (int i = 100; i < out.length - 1; i++) {
+            double expected = 0.5 * 32767 * Math.sin(2 * Math.PI * 200 * (3.0 * i) / 48000);
+            assertEquals(expected, out[i], 0.03 * 32767, "sample " + i);
+        }
+    }
+
+    @Test
+    void carriesPartialSamplesAndPhaseAcrossFrames() {
+        AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_F32LE, 44100, 2);
+        float[] signal = new float[2 * 4410];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = (float) Math.sin(i * 0.01) * ((i & 1) == 0 ? 0.3f : 0.6f);
+        }
+        byte[] bytes = f32(signal).array();
+
+        byte[] whole = collect(ungated(format), bytes, bytes.length);
+        // Odd chunk sizes split samples and sample frames at every possible offset
+        byte[] split = collect(ungated(format), bytes, 7, 13, 1, 29, 1024);
+
+        assertEquals(whole.length, split.length);
+        assertArrayEquals(whole, split);
+    }
+
+    @Test
+    void gateHoldsBackSilenceAfterTheHangover() {
+        AudioPreprocessor preprocessor = new AudioPreprocessor(AudioFormat.UPSTREAM, true, -40f, 10f, 30, stats);
+        ByteBuffer speech = pcm16(constant(320, (short) 8000));
+        ByteBuffer silence = pcm16(constant(320, (short) 0));
+
+        assertSame(speech, preprocessor.process(speech));
+        long voicedAt = preprocessor.getLastVoicedNanos();
+        assertTrue(voicedAt > 0);
+        // The first 20 ms of silence is inside the 30 ms hangover, the next runs past it
+        assertNotNull(preprocessor.process(silence.duplicate()));
+        assertNull(preprocessor.process(silence.duplicate()));
+        assertEquals(voicedAt, preprocessor.getLastVoicedNanos());
+        assertEquals(1, stats.getFramesSuppressed());
+    }
+
+    @Test
+    void tracksVoiceActivityWithTheGateDisabled() {
+        AudioPreprocessor preprocessor = ungated(AudioFormat.UPSTREAM);
+
+        preprocessor.process(pcm16(constant(320, (short) 0)));
+        assertEquals(0, preprocessor.getLastVoicedNanos());
+        preprocessor.process(pcm16(constant(320, (short) 8000)));
+
+        assertTrue(preprocessor.getLastVoicedNanos() > 0);
+        assertEquals(0, stats.getFramesSuppressed());
+    }
+
+    private AudioPreprocessor ungated(AudioFormat format) {
+        return new AudioPreprocessor(format, false, -40f, 10f, 300, stats);
+    }
+
+    private static byte[] collect(AudioPreprocessor preprocessor, byte[] input, int... chunkSizes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int offset = 0;
+        for (int chunk = 0; offset < input.length; chunk++) {
+            int length = Math.min(chunkSizes[chunk % chunkSizes.length], input.length - offset);
+            ByteBuffer result = preprocessor.process(ByteBuffer.wrap(input, offset, length).slice());
+            if (result != null) {
+                byte[] bytes = new byte[result.remaining()];
+                result.get(bytes);
+                out.writeBytes(bytes);
+            }
+            offset += length;
+        }
+        return out.toByteArray();
+    }
+
+    private static short[] constant(int count, short value) {
+        short[] samples = new short[count];
+        Arrays.fill(samples, value);
+        return samples;
+    }
+
+    private static ByteBuffer pcm16(short[] samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (short sample : samples) {
+            buffer.putShort(sample);
+        }
+        return buffer.flip();
+    }
+
+    private static ByteBuffer f32(float[] samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (float sample : samples) {
+            buffer.putFloat(sample);
+        }
+        return buffer.flip();
+    }
+
+    private static short[] toShorts(ByteBuffer pcm) {
+        ByteBuffer view = pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        short[] samples = new short[view.remaining() / 2];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = view.getShort();
+        }
+        return samples;
+    }
+
+    private static ByteBuffer wav(int sampleRate, int channels, ByteBuffer data) {
+        ByteBuffer wav = ByteBuffer.allocate(44 + data.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + data.remaining()).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * channels * 2).putShort((short) (channels * 2)).putShort((short) 16);
+        wav.put("data".getBytes()).putInt(data.remaining()).put(data);
+        return wav.flip();
+    }
+}
@@ -0,0 +1,179 @@
+package com.solocrew;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the queue with an executor that only runs tasks when told to, so frames pile up as they
+ * would behind a slow upstream.
+ */
+class AudioSendQueueTest {
+
+    private static final int CAPACITY = 2;
+    private static final int POOL_BUFFER_BYTES = 32;
+
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private final List<byte[]> sent = new ArrayList<>();
+    private final AtomicInteger disconnects = new AtomicInteger();
+    private final AudioBufferPool pool = new AudioBufferPool(POOL_BUFFER_BYTES, 8);
+    private final AudioSendQueue.Stats stats = new AudioSendQueue.Stats();
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn("upstream-1");
+        // The payload goes back to the pool after the send, so copy it out now
+        doAnswer(invocation -> {
+            ByteBuffer payload = invocation.<BinaryMessage>getArgument(0).getPayload();
+            byte[] bytes = new byte[payload.remaining()];
+            payload.duplicate().get(bytes);
+            sent.add(bytes);
+            return null;
+        }).when(session).sendMessage(any());
+    }
+
+    @Test
+    void sendsFramesInOrderFromTheExecutorOnly() throws Exception {
+        AudioSendQueue queue = newQueue(AudioSendQueue.OverflowPolicy.DROP_OLDEST);
+
+        assertTrue(queue.offer(frame(1, 4)));
+        assertTrue(queue.offer(frame(2, 4)));
+        verify(session, never()).sendMessage(any());
+        // One drain task, however many frames are queued behind it
+        assertEquals(1, tasks.size());
+
+        runTasks();
+
+        assertEquals(List.of(1, 2), firstBytes());
+        assertEquals(0, queue.getDepth());
+        assertEquals(2, stats.getSentMessages());
+    }
+
+    @Test
+    void dropOldestKeepsTheNewestFrames() {
+        AudioSendQueue queue = newQueue(AudioSendQueue.OverflowPolicy.DROP_OLDEST);
+
+        assertTrue(queue.offer(frame(1, 4)));
+        assertTrue(queue.offer(frame(2, 4)));
+        assertTrue(queue.offer(frame(3, 4)));
+
+        assertEquals(CAPACITY, queue.getDepth());
+        assertEquals(1, stats.getDroppedFrames());
+        runTasks();
+        assertEquals(List.of(2, 3), firstBytes());
+    }
+
+    @Test
+    void coalesceAppendsToTheLastQueuedMessage() {
+        AudioSendQueue queue = newQueue(AudioSendQueue.OverflowPolicy.COALESCE);
+
+        queue.offer(frame(1, 8));
+        queue.offer(frame(2, 8));
+        assertTrue(queue.offer(frame(3, 8)));
+
+        assertEquals(CAPACITY, queue.getDepth());
+        assertEquals(1, stats.getCoalescedFrames());
+        assertEquals(0, stats.getDroppedFrames());
+        runTasks();
+        assertEquals(2, sent.size());
+        assertArrayEquals(concat(frame(2, 8), frame(3, 8)), sent.get(1));
+    }
+
+    @Test
+    void coalesceDropsOldestWhenTheLastMessageIsFull() {
+        AudioSendQueue queue = newQueue(AudioSendQueue.OverflowPolicy.COALESCE);
+
+        queue.offer(frame(1, 8));
+        queue.offer(frame(2, 24));
+        assertTrue(queue.offer(frame(3, 16)));
+
+        assertEquals(0, stats.getCoalescedFrames());
+        assertEquals(1, stats.getDroppedFrames());
+        runTasks();
+        assertEquals(List.of(2, 3), firstBytes());
+    }
+
+    @Test
+    void disconnectClosesTheSessionAndRejectsFurtherFrames() throws Exception {
+        AudioSendQueue queue = newQueue(AudioSendQueue.OverflowPolicy.DISCONNECT);
+
+        queue.offer(frame(1, 4));
+        queue.offer(frame(2, 4));
+        assertFalse(queue.offer(frame(3, 4)));
+        assertEquals(0, queue.getDepth());
+
+        runTasks();
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1, disconnects.get());
+        assertTrue(sent.isEmpty());
+        assertFalse(queue.offer(frame(4, 4)));
+    }
+
+    @Test
+    void pooledFramesAreTakenWithoutCopyAndReturnedWhenRejected() {
+        AudioSendQueue queue = newQueue(AudioSendQueue.OverflowPolicy.DROP_OLDEST);
+        ByteBuffer pooled = pool.acquire(4);
+        pooled.put(frame(7, 4)).flip();
+
+        assertTrue(queue.offerPooled(pooled));
+        queue.close();
+        int free = pool.getFreeBuffers();
+
+        ByteBuffer rejected = pool.acquire(4);
+        assertFalse(queue.offerPooled(rejected));
+        assertEquals(free, pool.getFreeBuffers());
+    }
+
+    private AudioSendQueue newQueue(AudioSendQueue.OverflowPolicy policy) {
+        return new AudioSendQueue(session, pool, tasks::add, CAPACITY, policy, disconnects::incrementAndGet, stats);
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private List<Integer> firstBytes() {
+        List<Integer> values = new ArrayList<>();
+        for (byte[] message : sent) {
+            values.add((int) message[0]);
+        }
+        return values;
+    }
+
+    private static ByteBuffer frame(int value, int length) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static byte[] concat(ByteBuffer first, ByteBuffer second) {
+        ByteBuffer joined = ByteBuffer.allocate(first.remaining() + second.remaining());
+        return joined.put(first).put(second).array();
+    }
+}
@@ -0,0 +1,177 @@
+package com.solocrew;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class SegmentLogConversationRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private SegmentLogConversationRepository repository;
+    private SimpleMeterRegistry registry;
+
+    @AfterEach
+    void close() throws InterruptedException {
+        if (repository != null) {
+            repository.shutdown();
+        }
+    }
+
+    @Test
+    void recoversMessagesAndSummariesAfterRestart() throws Exception {
+        repository = open(Long.MAX_VALUE, 0);
+        for (int i = 0; i < 5; i++) {
+            repository.appendMessage("a", new ConversationMessage("user", "a" + i));
+        }
+        repository.appendMessage("b", new ConversationMessage("assistant", "b0"));
+        repository.appendSummary("a", new ConversationMessage("system", "summary of a0-a2"), 3);
+
+        // Served from the log before the restart as well
+        assertEquals(List.of("a3", "a4"), contents(repository.load("a")));
+
+        repository.shutdown();
+        repository = open(Long.MAX_VALUE, 0);
+
+        StoredConversation a = repository.load("a");
+        assertEquals(List.of("a3", "a4"), contents(a));
+        assertEquals("summary of a0-a2", a.getSummary().getContent());
+        assertEquals(List.of("b0"), contents(repository.load("b")));
+        assertNull(repository.load("missing"));
+    }
+
+    @Test
+    void tornTailEndsTheSegmentWithoutLosingEarlierRecords() throws Exception {
+        repository = open(Long.MAX_VALUE, 0);
+        repository.appendMessage("a", new ConversationMessage("user", "kept"));
+        repository.shutdown();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("segment-"))
+                    .filter(file -> file.toFile().length() > 0)
+                    .findFirst()
+                    .orElseThrow();
+        }
+        // A crash mid-write: a header promising more bytes than follow
+        Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        repository = open(Long.MAX_VALUE, 0);
+        repository.appendMessage("a", new ConversationMessage("user", "after restart"));
+        assertEquals(List.of("kept", "after restart"), contents(repository.load("a")));
+    }
+
+    @Test
+    void compactionFoldsSegmentsIntoSnapshot() throws Exception {
+        repository = open(4096, 0);
+        for (int i = 0; i < 200; i++) {
+            repository.appendMessage("c" + (i % 10), new ConversationMessage("user", "message " + i));
+        }
+        awaitCondition(() -> compactions() >= 1);
+
+        assertTrue(fileNames().stream().anyMatch(name -> name.startsWith("snapshot-") && name.endsWith(".idx")));
+        assertEquals(20, repository.load("c3").getMessages().size());
+
+        repository.shutdown();
+        repository = open(Long.MAX_VALUE, 0);
+        for (int c = 0; c < 10; c++) {
+            List<String> messages = contents(repository.load("c" + c));
+            assertEquals(20, messages.size());
+            assertEquals("message " + c, messages.get(0));
+            assertEquals("message " + (190 + c), messages.get(19));
+        }
+    }
+
+    @Test
+    void compactionExpiresConversationsPastRetention() throws Exception {
+        repository = open(4096, 50);
+        repository.appendMessage("old", new ConversationMessage("user", "hello"));
+        fill("filler-1");
+        awaitCondition(() -> compactions() >= 1);
+
+        Thread.sleep(100);
+        long before = compactions();
+        fill("filler-2");
+        awaitCondition(() -> compactions() > before && repository.load("old") == null);
+
+        assertNotNull(repository.load("filler-2"));
+        assertTrue(registry.get("voice.conversations.log.expired").functionCounter().count() >= 1);
+    }
+
+    @Test
+    void startupDeletesLeftoversOfAnInterruptedCompaction() throws Exception {
+        repository = open(Long.MAX_VALUE, 0);
+        repository.appendMessage("a", new ConversationMessage("user", "kept"));
+        repository.shutdown();
+        // Crashed after writing the temp files, and after renaming the data but not the index
+        Files.write(directory.resolve("snapshot-00000000000000000005.dat.tmp"), new byte[16]);
+        Files.write(directory.resolve("snapshot-00000000000000000005.dat"), new byte[16]);
+
+        repository = open(Long.MAX_VALUE, 0);
+
+        assertFalse(fileNames().stream().anyMatch(name -> name.startsWith("snapshot-")));
+        assertEquals(List.of("kept"), contents(repository.load("a")));
+    }
+
+    private SegmentLogConversationRepository open(long compactionThresholdBytes, long retentionMs) throws IOException {
+        SegmentLogConversationRepository log = new SegmentLogConversationRepository();
+        ReflectionTestUtils.setField(log, "directory", directory.toString());
+        ReflectionTestUtils.setField(log, "fsyncIntervalMs", 1L);
+        ReflectionTestUtils.setField(log, "segmentMaxBytes", 1024L);
+        ReflectionTestUtils.setField(log, "compactionThresholdBytes", compactionThresholdBytes);
+        ReflectionTestUtils.setField(log, "compactionIntervalMs", 600_000L);
+        ReflectionTestUtils.setField(log, "retentionMs", retentionMs);
+        log.init();
+        registry = new SimpleMeterRegistry();
+        log.bindTo(registry);
+        return log;
+    }
+
+    private void fill(String uuid) {
+        for (int i = 0; i < 100; i++) {
+            repository.appendMessage(uuid, new ConversationMessage("user", "filler message " + i));
+        }
+    }
+
+    private long compactions() {
+        return (long) registry.get("voice.conversations.log.compaction").functionTimer().count();
+    }
+
+    private List<String> fileNames() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).toList();
+        }
+    }
+
+    private static List<String> contents(StoredConversation conversation) {
+        return conversation.getMessages().stream().map(ConversationMessage::getContent).toList();
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met within 10 s");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
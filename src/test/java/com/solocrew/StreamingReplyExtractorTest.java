@@ -0,0 +1,84 @@
+package com.solocrew;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingReplyExtractorTest {
+
+    private static final String CONTENT =
+            "{\"reply\": \"I hear you.\\nIt's \\\"hard\\\" \\u2014 take a breath.\", \"isHumanInterventionNeeded\": false}";
+    private static final String REPLY = "I hear you.\nIt's \"hard\" — take a breath.";
+
+    @Test
+    void decodesReplyFedInOnePiece() {
+        StreamingReplyExtractor extractor = new StreamingReplyExtractor();
+
+        assertEquals(REPLY, extractor.feed(CONTENT));
+        assertTrue(extractor.isComplete());
+        assertEquals(REPLY, extractor.getReply());
+    }
+
+    @Test
+    void decodesReplyFedInEveryPossibleSplit() {
+        // Splits land inside the key, escapes and the unicode sequence
+        for (int split = 1; split < CONTENT.length(); split++) {
+            StreamingReplyExtractor extractor = new StreamingReplyExtractor();
+            String reply = extractor.feed(CONTENT.substring(0, split)) + extractor.feed(CONTENT.substring(split));
+            assertEquals(REPLY, reply, "split at " + split);
+            assertTrue(extractor.isComplete());
+        }
+    }
+
+    @Test
+    void decodesReplyFedOneCharacterAtATime() {
+        StreamingReplyExtractor extractor = new StreamingReplyExtractor();
+        StringBuilder reply = new StringBuilder();
+        for (int i = 0; i < CONTENT.length(); i++) {
+            reply.append(extractor.feed(CONTENT.substring(i, i + 1)));
+        }
+
+        assertEquals(REPLY, reply.toString());
+        assertEquals(REPLY, extractor.getReply());
+    }
+
+    @Test
+    void emitsNothingBeforeTheReplyValueStarts() {
+        StreamingReplyExtractor extractor = new StreamingReplyExtractor();
+
+        assertEquals("", extractor.feed("{\"isHumanInterventionNeeded\": true, "));
+        assertEquals("", extractor.feed("\"rep"));
+        assertEquals("", extractor.feed("ly\" :  "));
+        assertEquals("Ok", extractor.feed("\"Ok\"}"));
+        assertTrue(extractor.isComplete());
+    }
+
+    @Test
+    void ignoresEverythingAfterTheClosingQuote() {
+        StreamingReplyExtractor extractor = new StreamingReplyExtractor();
+
+        assertEquals("Done", extractor.feed("{\"reply\":\"Done\", \"other\": \"reply\\\": \\\"more\"}"));
+        assertEquals("", extractor.feed("{\"reply\": \"again\"}"));
+        assertEquals("Done", extractor.getReply());
+    }
+
+    @Test
+    void keepsPartialReplyWhenContentIsCutOff() {
+        StreamingReplyExtractor extractor = new StreamingReplyExtractor();
+
+        assertEquals("I hear", extractor.feed("{\"reply\": \"I hear"));
+        assertFalse(extractor.isComplete());
+        assertEquals("I hear", extractor.getReply());
+    }
+
+    @Test
+    void findsNoReplyInOtherContent() {
+        StreamingReplyExtractor extractor = new StreamingReplyExtractor();
+
+        assertEquals("", extractor.feed("I'm sorry, I can't answer in JSON."));
+        assertFalse(extractor.isComplete());
+        assertEquals("", extractor.getReply());
+    }
+}
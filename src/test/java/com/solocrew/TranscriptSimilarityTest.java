@@ -0,0 +1,47 @@
+package com.solocrew;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TranscriptSimilarityTest {
+
+    @Test
+    void formattingDoesNotCount() {
+        assertEquals(1.0, TranscriptSimilarity.similarity("i feel really tired today",
+                "I feel really tired, today."));
+        assertEquals(1.0, TranscriptSimilarity.similarity("  hello   there ", "Hello there!"));
+    }
+
+    @Test
+    void apostrophesStayPartOfTheWord() {
+        assertEquals(1.0, TranscriptSimilarity.similarity("I don't know", "i don't know"));
+        assertEquals(0.5, TranscriptSimilarity.similarity("dont know", "don't know"));
+    }
+
+    @Test
+    void scoresWordEditsOverTheLongerTranscript() {
+        // One substitution in four words
+        assertEquals(0.75, TranscriptSimilarity.similarity("i feel so tired", "i feel so tried"));
+        // One insertion: four words against five
+        assertEquals(0.8, TranscriptSimilarity.similarity("i feel so tired", "i feel so very tired"));
+        assertEquals(0.8, TranscriptSimilarity.similarity("i feel so very tired", "i feel so tired"));
+    }
+
+    @Test
+    void nothingInCommonScoresZero() {
+        assertEquals(0.0, TranscriptSimilarity.similarity("good morning", "see you"));
+        assertEquals(0.0, TranscriptSimilarity.similarity("", "hello"));
+    }
+
+    @Test
+    void emptyTranscriptsAreIdentical() {
+        assertEquals(1.0, TranscriptSimilarity.similarity("", ""));
+        assertEquals(1.0, TranscriptSimilarity.similarity("...", " "));
+    }
+
+    @Test
+    void matchesLettersAndDigitsBeyondAscii() {
+        assertEquals(1.0, TranscriptSimilarity.similarity("Ça va, à 10 heures?", "ça va à 10 heures"));
+    }
+}